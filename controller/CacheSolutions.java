@@ -0,0 +1,275 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import modele.EtatGrille;
+import modele.GrapheCandidats;
+
+/**
+ *
+ * Bounded cache of solutions of Hashiwokakero puzzles, so that a puzzle
+ * solved once, e.g. before being restarted or reloaded, is not solved again.
+ * When the cache is full, the solution used least recently is evicted.
+ *
+ * <p>
+ * A puzzle is identified by its canonical form: the width and height of the
+ * grid, the positions of the iles and the ponts they require, in the
+ * orientation among the 8 rotations and reflections of the grid whose
+ * encoding is the smallest. Thus, the solution of a puzzle is also found for
+ * the rotated or reflected puzzle, and is mapped back to the orientation of
+ * the caller.
+ * </p>
+ *
+ * <p>
+ * The methods are synchronized, so that a cache can be shared by several
+ * solving threads.
+ * </p>
+ */
+public final class CacheSolutions {
+
+    private final int capacite;
+    private final Map<Forme, byte[]> solutions; // ponts to the east and to the south of every ile in canonical order
+    private long noOfSucces;
+    private long noOfEchecs;
+    private long noOfEvictions;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param capacite
+     *            maximum number of solutions kept
+     * @throws IllegalArgumentException
+     *             if the capacity is less than 1
+     */
+    public CacheSolutions(int capacite) throws IllegalArgumentException {
+        if (capacite < 1)
+            throw new IllegalArgumentException("La capacité doit être au moins 1.");
+        this.capacite = capacite;
+        this.solutions = new LinkedHashMap<Forme, byte[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Forme, byte[]> eldest) {
+                if (size() <= CacheSolutions.this.capacite)
+                    return false;
+                noOfEvictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets the solution of the puzzle of <code>etat</code> if it is cached
+     * and keeps the ponts of <code>etat</code>, i.e. there are at least as
+     * many ponts on every arete of the solution.
+     *
+     * @param etat
+     *            ponts from which the puzzle is to be solved, not changed
+     * @return solution on the layout of <code>etat</code>, null if there is
+     *         none in the cache keeping the ponts of <code>etat</code>
+     */
+    public EtatGrille chercher(EtatGrille etat) {
+        return chercher(etat, new Forme(etat.getGraphe()));
+    }
+
+    /**
+     * Gets the solution of the puzzle of <code>etat</code> as
+     * {@link #chercher(EtatGrille)} does, from the canonical form of its
+     * layout computed before.
+     *
+     * @param forme
+     *            canonical form of the layout of <code>etat</code>
+     */
+    EtatGrille chercher(EtatGrille etat, Forme forme) {
+        GrapheCandidats graphe = etat.getGraphe();
+        byte[] ponts;
+        synchronized (this) {
+            ponts = solutions.get(forme);
+            if (ponts == null || !garde(ponts, forme, etat)) {
+                noOfEchecs++;
+                return null;
+            }
+            noOfSucces++;
+        }
+        EtatGrille solution = etat.fork();
+        for (int arete = 0; arete < graphe.getNbAretes(); arete++)
+            solution.setMultiplicite(arete, ponts[forme.emplacement(graphe, arete)]);
+        return solution;
+    }
+
+    private static boolean garde(byte[] ponts, Forme forme, EtatGrille etat) {
+        GrapheCandidats graphe = etat.getGraphe();
+        for (int arete = 0; arete < graphe.getNbAretes(); arete++) {
+            if (etat.getMultiplicite(arete) > ponts[forme.emplacement(graphe, arete)])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Puts the <code>solution</code> of its puzzle in the cache, replacing
+     * the solution of the same puzzle in any orientation cached before.
+     *
+     * @param solution
+     *            ponts of a solution of the puzzle
+     */
+    public void ajouter(EtatGrille solution) {
+        ajouter(solution, new Forme(solution.getGraphe()));
+    }
+
+    /**
+     * Puts the <code>solution</code> of its puzzle in the cache as
+     * {@link #ajouter(EtatGrille)} does, from the canonical form of its layout
+     * computed before.
+     *
+     * @param forme
+     *            canonical form of the layout of <code>solution</code>
+     */
+    void ajouter(EtatGrille solution, Forme forme) {
+        GrapheCandidats graphe = solution.getGraphe();
+        byte[] ponts = new byte[2 * graphe.getNbIles()];
+        for (int arete = 0; arete < graphe.getNbAretes(); arete++)
+            ponts[forme.emplacement(graphe, arete)] = (byte) solution.getMultiplicite(arete);
+        synchronized (this) {
+            solutions.put(forme, ponts);
+        }
+    }
+
+    public int getCapacite() {
+        return capacite;
+    }
+
+    public synchronized int getTaille() {
+        return solutions.size();
+    }
+
+    /**
+     * Gets the number of {@link #chercher(EtatGrille) searches} that found a
+     * solution.
+     */
+    public synchronized long getNbSucces() {
+        return noOfSucces;
+    }
+
+    /**
+     * Gets the number of {@link #chercher(EtatGrille) searches} that found no
+     * solution.
+     */
+    public synchronized long getNbEchecs() {
+        return noOfEchecs;
+    }
+
+    /**
+     * Gets the number of solutions evicted because the cache was full.
+     */
+    public synchronized long getNbEvictions() {
+        return noOfEvictions;
+    }
+
+    /**
+     * Gets the ratio of the searches that found a solution, 0 if there was no
+     * search.
+     */
+    public synchronized double getTauxSucces() {
+        long noOfRecherches = noOfSucces + noOfEchecs;
+        return noOfRecherches == 0 ? 0 : (double) noOfSucces / noOfRecherches;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d/%d solutions, %d succès, %d échecs, %d évictions", solutions.size(), capacite, noOfSucces, noOfEchecs, noOfEvictions);
+    }
+
+    /**
+     * Canonical form of a layout, used as key of the cache, and the
+     * orientation in which it was found, mapping the aretes of the layout to
+     * the ponts of the canonical form. It does not keep the layout, so that a
+     * cached solution does not keep the layout it was found for; computing it
+     * takes sorting the iles in the 8 orientations, so that it is worth
+     * keeping for the layout of a puzzle looked up several times.
+     */
+    static final class Forme {
+
+        private final int width; // of canonical form
+        private final int[] rangs; // by ile id, rank of the ile in canonical form
+        private final int[] code; // width, height, then position and ponts required of every ile in canonical order
+        private final int hash;
+
+        Forme(GrapheCandidats graphe) {
+            int noOfIles = graphe.getNbIles();
+            int[] meilleur = null;
+            long[] meilleurOrdre = null;
+            // symetrie: bit 0 reflects x, bit 1 reflects y, bit 2 then swaps x and y
+            for (int symetrie = 0; symetrie < 8; symetrie++) {
+                int width = (symetrie & 4) == 0 ? graphe.getWidth() : graphe.getHeight();
+                // ile ids by position in the orientation
+                long[] ordre = new long[noOfIles];
+                for (int ile = 0; ile < noOfIles; ile++)
+                    ordre[ile] = (long) position(graphe, symetrie, width, ile) << 32 | ile;
+                Arrays.sort(ordre);
+                int[] code = new int[2 + 2 * noOfIles];
+                code[0] = width;
+                code[1] = (symetrie & 4) == 0 ? graphe.getHeight() : graphe.getWidth();
+                for (int rang = 0; rang < noOfIles; rang++) {
+                    code[2 + 2 * rang] = (int) (ordre[rang] >>> 32);
+                    code[3 + 2 * rang] = graphe.getNoOfPontsRequired((int) ordre[rang]);
+                }
+                if (meilleur == null || comparer(code, meilleur) < 0) {
+                    meilleur = code;
+                    meilleurOrdre = ordre;
+                }
+            }
+            this.width = meilleur[0];
+            this.code = meilleur;
+            this.rangs = new int[noOfIles];
+            for (int rang = 0; rang < noOfIles; rang++)
+                rangs[(int) meilleurOrdre[rang]] = rang;
+            this.hash = Arrays.hashCode(meilleur);
+        }
+
+        // lexicographic order of codes of the same length
+        private static int comparer(int[] code, int[] autre) {
+            for (int i = 0; i < code.length; i++) {
+                if (code[i] != autre[i])
+                    return Integer.compare(code[i], autre[i]);
+            }
+            return 0;
+        }
+
+        // index of the position of the ile in the grid of the orientation, row by row
+        private static int position(GrapheCandidats graphe, int symetrie, int width, int ile) {
+            int x = (symetrie & 1) == 0 ? graphe.getX(ile) : graphe.getWidth() - 1 - graphe.getX(ile);
+            int y = (symetrie & 2) == 0 ? graphe.getY(ile) : graphe.getHeight() - 1 - graphe.getY(ile);
+            return (symetrie & 4) == 0 ? y * width + x : x * width + y;
+        }
+
+        /**
+         * Gets the index in the ponts of the canonical form of the
+         * <code>arete</code> of the layout: twice the rank of its north or west
+         * end in canonical form, plus one if it is vertical in canonical form.
+         *
+         * @param graphe
+         *            layout this form was computed from
+         */
+        int emplacement(GrapheCandidats graphe, int arete) {
+            int start = rangs[graphe.getStart(arete)];
+            int end = rangs[graphe.getEnd(arete)];
+            int debut = Math.min(start, end); // ranks follow positions row by row
+            int positionDebut = code[2 + 2 * debut];
+            int positionFin = code[2 + 2 * Math.max(start, end)];
+            return 2 * debut + (positionDebut / width == positionFin / width ? 0 : 1);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Forme && Arrays.equals(code, ((Forme) object).code);
+        }
+    }
+}
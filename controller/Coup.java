@@ -0,0 +1,65 @@
+package controller;
+
+import modele.GrapheCandidats;
+
+/**
+ *
+ * A pont that must certainly be built on a puzzle, as found by a
+ * {@link Planificateur}: the arete between two iles, the number of ponts it
+ * gets once the pont is built and the {@link Regle rule} that found it.
+ * Instances are immutable.
+ */
+public final class Coup {
+
+    private final int arete;
+    private final int start;
+    private final int end;
+    private final int multiplicite;
+    private final Regle regle;
+
+    Coup(GrapheCandidats graphe, int arete, int multiplicite, Regle regle) {
+        this.arete = arete;
+        this.start = graphe.getStart(arete);
+        this.end = graphe.getEnd(arete);
+        this.multiplicite = multiplicite;
+        this.regle = regle;
+    }
+
+    /**
+     * Gets the id of the arete on which the pont is built.
+     */
+    public int getArete() {
+        return arete;
+    }
+
+    /**
+     * Gets the id of the ile north or west of the other ile.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the id of the ile south or east of the other ile.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the number of ponts (1 or 2) between both iles once the pont is
+     * built.
+     */
+    public int getMultiplicite() {
+        return multiplicite;
+    }
+
+    public Regle getRegle() {
+        return regle;
+    }
+
+    @Override
+    public String toString() {
+        return start + " " + end + " " + multiplicite + " " + regle;
+    }
+}
@@ -0,0 +1,526 @@
+package controller;
+
+import java.util.Arrays;
+
+import modele.GrapheCandidats;
+import modele.Position.Direction;
+
+/**
+ *
+ * Possible numbers of ponts (0, 1 or 2) of every arete of a
+ * {@link GrapheCandidats layout} during a search. The domain of an arete is
+ * the interval between its minimum and its maximum number of ponts: the
+ * restrictions made by the search and by the propagation only ever raise the
+ * minimum or lower the maximum, so that no other set of values can occur.
+ *
+ * <p>
+ * The minimums and the maximums are packed on two bits by arete in two arrays
+ * of words, {@value #ARETES_PAR_MOT} aretes by word, so that the aretes left
+ * to choose are found a word at a time. Each ile keeps the ponts it requires
+ * beyond the minimums of its aretes and the sum of their maximums.
+ * </p>
+ *
+ * <p>
+ * Every restriction of a domain is recorded on a trail, so that the domains
+ * can be rolled back to an earlier {@link #marque() mark} in time linear in
+ * the number of restrictions made since, without copying them. The trail also
+ * keeps the cause of every restriction: a choice, the bounds of an ile, an
+ * arete crossing it or the connexity of the iles, so that a failure can be
+ * {@link #expliquerEchec(int) explained} by the choices it follows from.
+ * </p>
+ */
+final class Domaines {
+
+    static final int ARETES_PAR_MOT = 32; // of two bits in a long
+    // kinds of causes of restrictions, in the two lowest bits of a cause, above which is the arete or the ile involved
+    private static final int CHOIX = 0, ILE = 1, CROISEMENT = 2, CONNEXITE = 3;
+
+    private static final long BITS_FAIBLES = 0x5555555555555555L; // low bit of the two bits of every arete
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final GrapheCandidats graphe;
+    private final long[] mins; // two bits by arete
+    private final long[] maxs; // two bits by arete
+    private final int[] residuels; // ponts required by an ile beyond the minimums of its aretes
+    private final int[] capacites; // sum of the maximums of the aretes of an ile
+    private int[] trace = new int[64]; // arete << 4 | previous minimum << 2 | previous maximum
+    private int[] causes = new int[64]; // by entry of the trail: cause << 2 | 1 if the minimum changed | 2 if the maximum changed
+    private int[] precedentes = new int[64]; // by entry of the trail: previous entry of the same arete, -1 if none
+    private final int[] dernieres; // by arete: last entry of the trail, -1 if none
+    private int tailleTrace;
+    // last failure of propagation: arete whose domain became empty, -1 if an ile, and cause
+    private int areteEchec;
+    private int causeEchec;
+    // explanation of the last failure
+    private int[] vues = new int[64]; // entry of the trail looked at if equal to explication
+    private int explication;
+    private int[] aExpliquer = new int[64]; // entries of the trail
+    private int[] choixEnCause = new int[64]; // entries of the trail
+    private final int[] file; // iles to propagate, circular
+    private final boolean[] enFile;
+    private int debutFile;
+    private int tailleFile;
+    // depth-first search of the bridges
+    private final int[] parcours; // iles from the first one to the one visited
+    private final int[] prochaines; // ordinal of next direction to look at from the ile at the same depth
+    private final int[] visites; // ile visited if equal to visite
+    private final int[] decouvertes; // order in which the iles are visited
+    private final int[] bas; // lowest order reached from the subtree of an ile by one more arete
+    private final int[] aretesParentes; // arete by which an ile was reached
+    private final int[] isthmes; // bridges found that may get no pont
+    private int visite;
+    private boolean aretesFermees; // true if an arete lost its last possible pont since the bridges were searched
+    private long noOfRestrictions;
+
+    Domaines(GrapheCandidats graphe) {
+        this.graphe = graphe;
+        int noOfIles = graphe.getNbIles();
+        int noOfAretes = graphe.getNbAretes();
+        mins = new long[(noOfAretes + ARETES_PAR_MOT - 1) / ARETES_PAR_MOT];
+        maxs = new long[mins.length];
+        residuels = new int[noOfIles];
+        capacites = new int[noOfIles];
+        file = new int[noOfIles];
+        enFile = new boolean[noOfIles];
+        parcours = new int[noOfIles];
+        prochaines = new int[noOfIles];
+        visites = new int[noOfIles];
+        decouvertes = new int[noOfIles];
+        bas = new int[noOfIles];
+        aretesParentes = new int[noOfIles];
+        isthmes = new int[noOfIles];
+        dernieres = new int[noOfAretes];
+        Arrays.fill(dernieres, -1);
+        Arrays.fill(maxs, BITS_FAIBLES << 1); // 2 ponts for every arete
+        if (noOfAretes % ARETES_PAR_MOT != 0)
+            maxs[maxs.length - 1] &= (1L << 2 * (noOfAretes % ARETES_PAR_MOT)) - 1;
+        for (int arete = 0; arete < noOfAretes; arete++) {
+            capacites[graphe.getStart(arete)] += 2;
+            capacites[graphe.getEnd(arete)] += 2;
+        }
+        aretesFermees = true;
+        for (int ile = 0; ile < noOfIles; ile++) {
+            residuels[ile] = graphe.getNoOfPontsRequired(ile);
+            enfiler(ile);
+        }
+    }
+
+    /**
+     * Constructs a copy of the <code>domaines</code> with an empty trail,
+     * which can be changed independently of them, e.g. by another thread.
+     */
+    Domaines(Domaines domaines) {
+        this.graphe = domaines.graphe;
+        this.mins = domaines.mins.clone();
+        this.maxs = domaines.maxs.clone();
+        this.residuels = domaines.residuels.clone();
+        this.capacites = domaines.capacites.clone();
+        this.aretesFermees = domaines.aretesFermees;
+        int noOfIles = graphe.getNbIles();
+        file = new int[noOfIles];
+        enFile = new boolean[noOfIles];
+        parcours = new int[noOfIles];
+        prochaines = new int[noOfIles];
+        visites = new int[noOfIles];
+        decouvertes = new int[noOfIles];
+        bas = new int[noOfIles];
+        aretesParentes = new int[noOfIles];
+        isthmes = new int[noOfIles];
+        dernieres = new int[graphe.getNbAretes()];
+        Arrays.fill(dernieres, -1);
+    }
+
+    GrapheCandidats getGraphe() {
+        return graphe;
+    }
+
+    int min(int arete) {
+        return (int) (mins[arete >>> 5] >>> decalage(arete)) & 3;
+    }
+
+    int max(int arete) {
+        return (int) (maxs[arete >>> 5] >>> decalage(arete)) & 3;
+    }
+
+    boolean estFixe(int arete) {
+        return min(arete) == max(arete);
+    }
+
+    // position of the two bits of the arete in its word
+    private static int decalage(int arete) {
+        return (arete & 31) << 1;
+    }
+
+    /**
+     * Gets the number of words of {@value #ARETES_PAR_MOT} aretes.
+     */
+    int getNbMots() {
+        return mins.length;
+    }
+
+    /**
+     * Gets the aretes of the word <code>mot</code> whose domain has more than
+     * one value: bit 2i is set if the arete <code>mot</code>
+     * &times; {@value #ARETES_PAR_MOT} + i is not fixed.
+     */
+    long nonFixees(int mot) {
+        long differences = mins[mot] ^ maxs[mot];
+        return (differences | differences >>> 1) & BITS_FAIBLES;
+    }
+
+    /**
+     * Gets the number of ponts the <code>ile</code> may still get beyond the
+     * ponts it requires, if the maximum number of ponts is built on each of
+     * its aretes.
+     */
+    int marge(int ile) {
+        return capacites[ile] - graphe.getNoOfPontsRequired(ile);
+    }
+
+    /**
+     * Gets the number of domains restricted since construction, by choices
+     * and by propagation, including the restrictions rolled back since.
+     */
+    long getNbRestrictions() {
+        return noOfRestrictions;
+    }
+
+    /**
+     * Gets a mark to which the domains can be {@link #revenirA(int) rolled
+     * back}.
+     */
+    int marque() {
+        return tailleTrace;
+    }
+
+    /**
+     * Rolls back every restriction made since the <code>marque</code> was
+     * taken.
+     */
+    void revenirA(int marque) {
+        while (tailleTrace > marque) {
+            int entree = trace[--tailleTrace];
+            int arete = entree >>> 4;
+            dernieres[arete] = precedentes[tailleTrace];
+            modifier(arete, (entree >>> 2 & 3) - min(arete), (entree & 3) - max(arete));
+        }
+        viderFile();
+    }
+
+    /**
+     * Restricts the domain of the <code>arete</code> to the values between
+     * <code>min</code> and <code>max</code>. If the arete gets a pont for
+     * sure, the aretes crossing it cannot get any. The iles of the aretes
+     * restricted are queued to be {@link #propager() propagated}.
+     *
+     * @return false if a domain became empty
+     */
+    boolean restreindre(int arete, int min, int max) {
+        return restreindre(arete, min, max, CHOIX);
+    }
+
+    private boolean restreindre(int arete, int min, int max, int cause) {
+        int ancienMin = min(arete);
+        int ancienMax = max(arete);
+        int nouveauMin = Math.max(ancienMin, min);
+        int nouveauMax = Math.min(ancienMax, max);
+        if (nouveauMin == ancienMin && nouveauMax == ancienMax)
+            return true;
+        if (nouveauMin > nouveauMax) {
+            areteEchec = arete;
+            causeEchec = cause;
+            return false;
+        }
+        if (tailleTrace == trace.length) {
+            trace = Arrays.copyOf(trace, 2 * trace.length);
+            causes = Arrays.copyOf(causes, trace.length);
+            precedentes = Arrays.copyOf(precedentes, trace.length);
+        }
+        causes[tailleTrace] = cause << 2 | (nouveauMin != ancienMin ? 1 : 0) | (nouveauMax != ancienMax ? 2 : 0);
+        precedentes[tailleTrace] = dernieres[arete];
+        dernieres[arete] = tailleTrace;
+        trace[tailleTrace++] = arete << 4 | ancienMin << 2 | ancienMax;
+        noOfRestrictions++;
+        modifier(arete, nouveauMin - ancienMin, nouveauMax - ancienMax);
+        if (nouveauMax == 0)
+            aretesFermees = true;
+        enfiler(graphe.getStart(arete));
+        enfiler(graphe.getEnd(arete));
+        if (ancienMin == 0 && nouveauMin > 0) {
+            for (int i = 0; i < graphe.getNbCroisements(arete); i++) {
+                if (!restreindre(graphe.getCroisement(arete, i), 0, 0, arete << 2 | CROISEMENT))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // adds the differences to the minimum and to the maximum of the arete
+    private void modifier(int arete, int differenceMin, int differenceMax) {
+        int mot = arete >>> 5;
+        int decalage = decalage(arete);
+        mins[mot] += (long) differenceMin << decalage;
+        maxs[mot] += (long) differenceMax << decalage;
+        residuels[graphe.getStart(arete)] -= differenceMin;
+        residuels[graphe.getEnd(arete)] -= differenceMin;
+        capacites[graphe.getStart(arete)] += differenceMax;
+        capacites[graphe.getEnd(arete)] += differenceMax;
+    }
+
+    /**
+     * Restricts the domains of the aretes of the queued iles until no domain
+     * changes any more: an arete gets at least the ponts its ile could not get
+     * from its other aretes and at most the ponts its ile still misses when
+     * the other aretes get their minimum. This subsumes the first four
+     * {@link Regles rules}. Then checks that the iles can still be connected
+     * and builds a pont on every arete whose removal would disconnect them,
+     * propagating again as long as such aretes are found. The bridges are
+     * only searched again once an arete can no longer get any pont, as the
+     * iles cannot be disconnected otherwise; rolling back restrictions may
+     * leave bridges without a pont until then, which only delays pruning.
+     *
+     * @return false if the domains cannot lead to a solution
+     */
+    boolean propager() {
+        while (true) {
+            if (!propagerBornes())
+                return false;
+            if (!aretesFermees)
+                return true;
+            int noOfIsthmes = chercherIsthmes();
+            if (noOfIsthmes < 0) {
+                areteEchec = -1;
+                causeEchec = CONNEXITE;
+                return false;
+            }
+            aretesFermees = false;
+            for (int i = 0; i < noOfIsthmes; i++) {
+                if (!restreindre(isthmes[i], 1, 2, CONNEXITE)) {
+                    viderFile();
+                    return false;
+                }
+            }
+        }
+    }
+
+    private boolean propagerBornes() {
+        while (tailleFile > 0) {
+            int ile = file[debutFile];
+            debutFile = (debutFile + 1) % file.length;
+            tailleFile--;
+            enFile[ile] = false;
+            int requis = graphe.getNoOfPontsRequired(ile);
+            if (residuels[ile] < 0 || capacites[ile] < requis) {
+                areteEchec = -1;
+                causeEchec = ile << 2 | ILE;
+                viderFile();
+                return false;
+            }
+            for (Direction direction : DIRECTIONS) {
+                int arete = graphe.getArete(ile, direction);
+                if (arete < 0)
+                    continue;
+                int borneMin = requis - (capacites[ile] - max(arete));
+                int borneMax = residuels[ile] + min(arete);
+                if (!restreindre(arete, borneMin, borneMax, ile << 2 | ILE)) {
+                    viderFile();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches, with Tarjan's algorithm, the bridges of the graph of the iles
+     * and of the aretes that may get ponts: the aretes not on any cycle, each
+     * of which must get a pont for the iles to be connected. The bridges that
+     * may still get no pont are put in {@link #isthmes}.
+     *
+     * @return number of bridges put in isthmes, -1 if the iles are not
+     *         connected
+     */
+    private int chercherIsthmes() {
+        int noOfIles = graphe.getNbIles();
+        if (noOfIles == 0)
+            return 0;
+        visite++;
+        int noOfVisites = 1;
+        int noOfIsthmes = 0;
+        int ordre = 0;
+        int taille = 0;
+        parcours[taille] = 0;
+        prochaines[taille++] = 0;
+        visites[0] = visite;
+        decouvertes[0] = bas[0] = ordre++;
+        aretesParentes[0] = -1;
+        while (taille > 0) {
+            int ile = parcours[taille - 1];
+            int direction = prochaines[taille - 1];
+            int enfant = -1;
+            while (enfant < 0 && direction < DIRECTIONS.length) {
+                int arete = graphe.getArete(ile, DIRECTIONS[direction++]);
+                if (arete < 0 || arete == aretesParentes[ile] || max(arete) == 0)
+                    continue;
+                int voisine = graphe.getAutreExtremite(arete, ile);
+                if (visites[voisine] == visite) {
+                    bas[ile] = Math.min(bas[ile], decouvertes[voisine]);
+                } else {
+                    enfant = voisine;
+                    aretesParentes[enfant] = arete;
+                }
+            }
+            prochaines[taille - 1] = direction;
+            if (enfant >= 0) {
+                visites[enfant] = visite;
+                decouvertes[enfant] = bas[enfant] = ordre++;
+                parcours[taille] = enfant;
+                prochaines[taille++] = 0;
+                noOfVisites++;
+                continue;
+            }
+            // every arete of ile visited, back to its parent
+            if (--taille == 0)
+                break;
+            int parent = parcours[taille - 1];
+            bas[parent] = Math.min(bas[parent], bas[ile]);
+            if (bas[ile] > decouvertes[parent] && min(aretesParentes[ile]) == 0)
+                isthmes[noOfIsthmes++] = aretesParentes[ile];
+        }
+        return noOfVisites == noOfIles ? noOfIsthmes : -1;
+    }
+
+    /**
+     * Explains the last failure of {@link #propager() propagation}, which
+     * must not have been rolled back yet, by the choices it follows from: the
+     * restrictions made by {@link #restreindre(int, int, int)} from the mark
+     * <code>debut</code> on, which propagate to the restrictions leading to
+     * the failure. The restrictions made before <code>debut</code> are taken
+     * for granted. A bridge getting a pont is explained by all the choices
+     * before it.
+     *
+     * @return number of entries of the trail of the choices put in
+     *         {@link #getChoixEnCause()}
+     */
+    int expliquerEchec(int debut) {
+        if (vues.length < trace.length)
+            vues = new int[trace.length];
+        if (aExpliquer.length < trace.length)
+            aExpliquer = new int[trace.length];
+        if (++explication == 0) { // wrapped around
+            Arrays.fill(vues, 0);
+            explication = 1;
+        }
+        int taille = 0;
+        if (areteEchec >= 0) {
+            taille = empiler(taille, cause(areteEchec, tailleTrace, 1), debut);
+            taille = empiler(taille, cause(areteEchec, tailleTrace, 2), debut);
+            taille = (causeEchec & 3) == CONNEXITE ? empilerChoix(taille, debut, tailleTrace)
+                    : empilerRaison(taille, areteEchec, causeEchec, 3, tailleTrace, debut);
+        } else if ((causeEchec & 3) == ILE) {
+            int ile = causeEchec >>> 2;
+            for (Direction direction : DIRECTIONS) {
+                int arete = graphe.getArete(ile, direction);
+                if (arete >= 0)
+                    taille = empiler(taille, cause(arete, tailleTrace, residuels[ile] < 0 ? 1 : 2), debut);
+            }
+        } else { // disconnected: aretes that can no longer get ponts from the iles reached from the first one
+            for (int ile = 0; ile < graphe.getNbIles(); ile++) {
+                if (visites[ile] != visite)
+                    continue;
+                for (Direction direction : DIRECTIONS) {
+                    int arete = graphe.getArete(ile, direction);
+                    if (arete >= 0 && visites[graphe.getAutreExtremite(arete, ile)] != visite)
+                        taille = empiler(taille, cause(arete, tailleTrace, 2), debut);
+                }
+            }
+        }
+        int noOfChoix = 0;
+        while (taille > 0) {
+            int entree = aExpliquer[--taille];
+            int cause = causes[entree] >>> 2;
+            int arete = trace[entree] >>> 4;
+            switch (cause & 3) {
+            case CHOIX:
+                if (noOfChoix == choixEnCause.length)
+                    choixEnCause = Arrays.copyOf(choixEnCause, 2 * noOfChoix);
+                choixEnCause[noOfChoix++] = entree;
+                break;
+            case CONNEXITE:
+                taille = empilerChoix(taille, debut, entree);
+                break;
+            default:
+                taille = empilerRaison(taille, arete, cause, causes[entree] & 3, entree, debut);
+            }
+        }
+        return noOfChoix;
+    }
+
+    /**
+     * Gets the entries of the trail of the choices found by the last
+     * {@link #expliquerEchec(int) explanation}.
+     */
+    int[] getChoixEnCause() {
+        return choixEnCause;
+    }
+
+    // pushes the choices from the entry debut to the entry avant excluded
+    private int empilerChoix(int taille, int debut, int avant) {
+        for (int entree = debut; entree < avant; entree++) {
+            if ((causes[entree] >>> 2 & 3) == CHOIX)
+                taille = empiler(taille, entree, debut);
+        }
+        return taille;
+    }
+
+    // pushes the entries leading to the bounds of the arete changed, 1 for the minimum and 2 for the maximum, by the cause before the entry avant
+    private int empilerRaison(int taille, int arete, int cause, int bornes, int avant, int debut) {
+        if ((cause & 3) == CROISEMENT)
+            return empiler(taille, cause(cause >>> 2, avant, 1), debut);
+        if ((cause & 3) != ILE)
+            return taille;
+        int ile = cause >>> 2;
+        for (Direction direction : DIRECTIONS) {
+            int autre = graphe.getArete(ile, direction);
+            if (autre < 0 || autre == arete)
+                continue;
+            // the minimum comes from the maximums of the other aretes, the maximum from their minimums
+            if ((bornes & 1) != 0)
+                taille = empiler(taille, cause(autre, avant, 2), debut);
+            if ((bornes & 2) != 0)
+                taille = empiler(taille, cause(autre, avant, 1), debut);
+        }
+        return taille;
+    }
+
+    // last entry before the entry avant changing the bound of the arete, 1 for the minimum and 2 for the maximum, -1 if none
+    private int cause(int arete, int avant, int borne) {
+        int entree = dernieres[arete];
+        while (entree >= avant || entree >= 0 && (causes[entree] & borne) == 0)
+            entree = precedentes[entree];
+        return entree;
+    }
+
+    private int empiler(int taille, int entree, int debut) {
+        if (entree >= debut && vues[entree] != explication) {
+            vues[entree] = explication;
+            aExpliquer[taille++] = entree;
+        }
+        return taille;
+    }
+
+    private void enfiler(int ile) {
+        if (!enFile[ile]) {
+            enFile[ile] = true;
+            file[(debutFile + tailleFile++) % file.length] = ile;
+        }
+    }
+
+    private void viderFile() {
+        while (tailleFile > 0) {
+            enFile[file[debutFile]] = false;
+            debutFile = (debutFile + 1) % file.length;
+            tailleFile--;
+        }
+    }
+}
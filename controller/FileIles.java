@@ -0,0 +1,80 @@
+package controller;
+
+import java.util.BitSet;
+
+import modele.Position.Direction;
+import modele.GrapheCandidats;
+
+/**
+ *
+ * Queue of the ids of the iles of a {@link GrapheCandidats layout} to be
+ * examined by the {@link Regle rules}, i.e. of the iles whose ponts, neighbors
+ * missing ponts or free lines changed since they were examined. An ile is
+ * queued at most once; all iles are queued at first.
+ */
+final class FileIles {
+
+    private final GrapheCandidats graphe;
+    private final int[] iles; // circular
+    private int debut;
+    private int taille;
+    private final BitSet enFile = new BitSet(); // ids in queue
+
+    FileIles(GrapheCandidats graphe) {
+        this.graphe = graphe;
+        this.iles = new int[graphe.getNbIles()];
+        for (int ile = 0; ile < iles.length; ile++)
+            ajouter(ile);
+    }
+
+    GrapheCandidats getGraphe() {
+        return graphe;
+    }
+
+    boolean estVide() {
+        return taille == 0;
+    }
+
+    /**
+     * Removes the ile at the head of the queue, which must not be empty.
+     *
+     * @return id of the ile removed
+     */
+    int retirer() {
+        int ile = iles[debut];
+        debut = (debut + 1) % iles.length;
+        taille--;
+        enFile.clear(ile);
+        return ile;
+    }
+
+    void ajouter(int ile) {
+        if (!enFile.get(ile)) {
+            enFile.set(ile);
+            iles[(debut + taille++) % iles.length] = ile;
+        }
+    }
+
+    /**
+     * Queues the iles concerned by a change of the ponts of the
+     * <code>arete</code>: its ends, their neighbors and the ends of the aretes
+     * crossing it, whose free lines changed.
+     */
+    void pontModifie(int arete) {
+        ajouterAutour(graphe.getStart(arete));
+        ajouterAutour(graphe.getEnd(arete));
+        for (int i = 0; i < graphe.getNbCroisements(arete); i++) {
+            ajouter(graphe.getStart(graphe.getCroisement(arete, i)));
+            ajouter(graphe.getEnd(graphe.getCroisement(arete, i)));
+        }
+    }
+
+    private void ajouterAutour(int ile) {
+        ajouter(ile);
+        for (Direction direction : Direction.values()) {
+            int arete = graphe.getArete(ile, direction);
+            if (arete >= 0)
+                ajouter(graphe.getAutreExtremite(arete, ile));
+        }
+    }
+}
@@ -4,11 +4,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import modele.EtatGrille;
+import modele.GrapheCandidats;
 import modele.Position;
 import modele.Position.Direction;
-import modele.GrilleModel;
+import modele.GrilleType;
 import modele.Pont;
 import modele.Ile;
 import modele.GrilleInterface;
@@ -18,23 +20,110 @@ import modele.GrilleInterface;
  * puzzle that can be solved. Randomness is confined by constraints such as the
  * number of iles that the puzzle should have or the width and height of the
  * puzzle.
+ * 
+ * <p>
+ * Every generator draws its random numbers from its own source, which is only
+ * used by the thread using the generator. Two generators constructed with the
+ * same seed generate the same puzzles when called with the same arguments, as
+ * the budget of the solver checking uniqueness is a number of nodes, not a
+ * time.
+ * </p>
  */
 public class GrilleGenerator {
 
     private static final int 
             MIN_WIDTH = 4, 
             MIN_HEIGHT = 4, 
-            MAX_WIDTH = 15, 
+            MAX_WIDTH = 15, // of puzzles of random size
             MAX_HEIGHT = 15, 
-            MIN_NO_OF_ISLANDS = 2;
+            MIN_NO_OF_ISLANDS = 2,
+            MAX_NO_OF_NODES = 100_000, // of a count of solutions, beyond which uniqueness is unknown
+            MAX_NO_OF_REPARATIONS_BY_ILE = 1;
     private GrilleInterface hashiModel; // model created
+    private final GrilleType typeGrille; // kind of model created
+    private final boolean solutionUnique; // true if puzzles must have a single solution
+    private final Solveur solveur = new Solveur(MAX_NO_OF_NODES, Long.MAX_VALUE);
+    // counts since construction
+    private long noOfGrilles; // puzzles returned
+    private long noOfEssais; // solved puzzles built
+    private long noOfReparations; // ponts changed to exclude another solution
+    private long noOfRejets; // solved puzzles thrown away because uniqueness could not be reached
+    private long noOfScissions; // iles added on a pont because no other ile could be added
+    // counts of the last puzzle returned
+    private int noOfEssaisGrille;
+    private int noOfScissionsGrille;
 
-    private static final Random random = new Random();
+    private SplittableRandom random;
     // to generate width, height, noOfIles, coords of iles and type of ponts
 
-    private List<Ile> pontableIles;
+    private final List<Ile> pontableIles = new ArrayList<>();
     // iles from or to which a pont can still be built, from these iles
     // iles are picked to build a pont to a new ile
+    private final List<Direction> directionsWithoutPonts = new ArrayList<>(); // of the ile picked
+    private final List<Position> validNeighborIleCoords = new ArrayList<>(); // of the ile picked
+
+    /**
+     * Constructs a generator creating puzzles with a single solution held by a
+     * {@link GrilleType#OBJETS} model.
+     */
+    public GrilleGenerator() {
+        this(GrilleType.OBJETS);
+    }
+
+    /**
+     * Constructs a generator creating puzzles with a single solution held by a
+     * {@link GrilleType#OBJETS} model, drawing its random numbers from the
+     * <code>seed</code>.
+     * 
+     * @param seed of the random numbers, the same seed gives the same puzzles
+     */
+    public GrilleGenerator(long seed) {
+        this(GrilleType.OBJETS, true, seed);
+    }
+
+    /**
+     * Constructs a generator creating puzzles with a single solution held by a
+     * model of the kind <code>typeGrille</code>.
+     * 
+     * @param typeGrille kind of model holding the generated puzzles
+     */
+    public GrilleGenerator(GrilleType typeGrille) {
+        this(typeGrille, true);
+    }
+
+    /**
+     * Constructs a generator creating puzzles held by a model of the kind
+     * <code>typeGrille</code>.
+     * 
+     * @param typeGrille     kind of model holding the generated puzzles
+     * @param solutionUnique true if the puzzles generated must have a single
+     *                       solution, false if any solvable puzzle will do, e.g.
+     *                       for puzzles too large to count their solutions
+     */
+    public GrilleGenerator(GrilleType typeGrille, boolean solutionUnique) {
+        this(typeGrille, solutionUnique, new SplittableRandom());
+    }
+
+    /**
+     * Constructs a generator creating puzzles held by a model of the kind
+     * <code>typeGrille</code>, drawing its random numbers from the
+     * <code>seed</code>.
+     * 
+     * @param typeGrille     kind of model holding the generated puzzles
+     * @param solutionUnique true if the puzzles generated must have a single
+     *                       solution
+     * @param seed           of the random numbers, the same seed gives the same
+     *                       puzzles
+     */
+    public GrilleGenerator(GrilleType typeGrille, boolean solutionUnique, long seed) {
+        this(typeGrille, solutionUnique, new SplittableRandom(seed));
+    }
+
+    private GrilleGenerator(GrilleType typeGrille, boolean solutionUnique, SplittableRandom random) {
+        this.typeGrille = typeGrille;
+        this.solutionUnique = solutionUnique;
+        this.random = random;
+    }
 
     /**
      * Génère les dimensions de la grille dont dépend le nombre d'îles générées aléatoirement
@@ -47,7 +136,7 @@ public class GrilleGenerator {
         return getPuzzleSituationModel(width, height, noOfIles);
     }
 
-    private static int getRandNoOfIles(int width, int height) {
+    private int getRandNoOfIles(int width, int height) {
         int minNoOfIles = width < height ? width : height;
         int maxNoOfIles = getMaxNoOfIles(width, height);
         minNoOfIles = minNoOfIles > maxNoOfIles ? maxNoOfIles : minNoOfIles;
@@ -55,7 +144,7 @@ public class GrilleGenerator {
     };
 
     private static int getMaxNoOfIles(int width, int height) {
-        return width * height / 5;
+        return (int) Math.min(Integer.MAX_VALUE, (long) width * height / 5);
     }
 
     /**
@@ -67,7 +156,7 @@ public class GrilleGenerator {
      * @param height of puzzle to be generated
      * @return A Hashiwokakero puzzle that can be solved
      * @throws IllegalArgumentException if <code>width</code> or <code>height</code>
-     *                                  is not in [4, 25]
+     *                                  is less than 4
      */
     public GrilleInterface getPuzzleSituationModel(int width, int height) throws IllegalArgumentException {
         int noOfIles = getRandNoOfIles(width, height);
@@ -75,41 +164,183 @@ public class GrilleGenerator {
     };
 
     private static boolean isPuzzleConfigurationValid(int width, int height) {
-        return MIN_WIDTH <= width && width <= MAX_WIDTH && MIN_HEIGHT <= height && height <= MAX_HEIGHT;
+        return MIN_WIDTH <= width && MIN_HEIGHT <= height;
     };
 
-    /**
-     * Generates a random, solvable <code>width</code> x <code>height</code>
-     * Hashiwokakero puzzle with <code>noOfIles</code> number of iles.
-     */
-    public GrilleInterface getPuzzleSituationModel(int width, int height, int noOfIles) throws IllegalArgumentException {
+    // throws IllegalArgumentException if no puzzle of noOfIles iles can be generated on a width x height field
+    static void verifierConfiguration(int width, int height, int noOfIles) throws IllegalArgumentException {
         // check if width and height are valid
         if (!isPuzzleConfigurationValid(width, height))
                 throw new IllegalArgumentException(
-                                "La configuration de la carte n'est pas valide pour générer un puzzle. La largeur doit être comprise entre " + MIN_WIDTH
-                                                + " et " + MAX_WIDTH + ". La hauteur doit être comprise entre " + MIN_HEIGHT + " et " + MAX_HEIGHT + ".");
+                                "La configuration de la carte n'est pas valide pour générer un puzzle. La largeur doit être au moins " + MIN_WIDTH
+                                                + ". La hauteur doit être au moins " + MIN_HEIGHT + ".");
         // check if noOfIles is valid
         if (MIN_NO_OF_ISLANDS > noOfIles || noOfIles > getMaxNoOfIles(width, height))
                 throw new IllegalArgumentException(
                                 "La configuration de la carte n'est pas valide pour générer un puzzle. Le nombre de fichiers doit être compris entre "
                                                 + MIN_NO_OF_ISLANDS + " et " + getMaxNoOfIles(width, height) + ".");
+    }
+
+    /**
+     * Generates a random, solvable <code>width</code> x <code>height</code>
+     * Hashiwokakero puzzle with <code>noOfIles</code> number of iles. The size
+     * of the puzzle is not bounded, large puzzles should be held by a
+     * {@link GrilleType#CREUSE} model and generated without checking that
+     * they have a single solution.
+     */
+    public GrilleInterface getPuzzleSituationModel(int width, int height, int noOfIles) throws IllegalArgumentException {
+        verifierConfiguration(width, height, noOfIles);
         // create model and populate it with iles and ponts until requirements are met
-        while (hashiModel == null || hashiModel.getNbIles() != noOfIles) {
-            hashiModel = new GrilleModel(width, height);
+        noOfEssaisGrille = noOfScissionsGrille = 0;
+        do {
+            hashiModel = typeGrille.creer(width, height);
             addSolvedHashiPuzzleToModel(noOfIles);
-        }
+            noOfEssais++;
+            noOfEssaisGrille++;
+        } while (hashiModel.getNbIles() != noOfIles || solutionUnique && !rendreSolutionUnique());
         hashiModel.supprimerPonts();
+        noOfGrilles++;
         return hashiModel;
     }
 
+    /**
+     * Changes the ponts of the solved puzzle of the model until it is the only
+     * solution of the puzzle. As long as the solver finds another solution, a
+     * pont on which both solutions differ is changed from single to double
+     * pont or conversely, as are the ponts required by its iles, so that the
+     * other solution is no longer one while the ponts of the model remain a
+     * solution.
+     * 
+     * <p>
+     * Every repair costs a count of solutions from the puzzle without ponts:
+     * at 15x15 with 45 iles, a puzzle takes about 16 repairs, and about one
+     * solved puzzle in ten is thrown away after its repairs, so that
+     * uniqueness takes most of the time spent generating a puzzle.
+     * </p>
+     * 
+     * @return true if the ponts of the model are the only solution, false if
+     *         too many ponts were changed or if the solver could not tell
+     *         within its budget
+     */
+    private boolean rendreSolutionUnique() {
+        for (int reparation = 0; reparation <= MAX_NO_OF_REPARATIONS_BY_ILE * hashiModel.getNbIles(); reparation++) {
+            EtatGrille solution = hashiModel.getEtat();
+            EtatGrille sansPonts = solution.fork();
+            GrapheCandidats graphe = solution.getGraphe();
+            for (int arete = 0; arete < graphe.getNbAretes(); arete++)
+                sansPonts.setMultiplicite(arete, 0);
+            int noOfSolutions = solveur.compterSolutions(sansPonts, 2);
+            if (solveur.getIssue() != Solveur.Issue.RESOLU)
+                break;
+            if (noOfSolutions == 1)
+                return true;
+            EtatGrille autreSolution = solveur.getSolutions().get(0);
+            if (autreSolution.getHash() == solution.getHash())
+                autreSolution = solveur.getSolutions().get(1);
+            // pick one of the aretes on which the solutions differ at random, always changing the same one rarely helps
+            int areteChoisie = -1;
+            int noOfAretes = 0;
+            for (int arete = 0; arete < graphe.getNbAretes(); arete++) {
+                int multiplicite = solution.getMultiplicite(arete);
+                if (multiplicite > 0 && multiplicite != autreSolution.getMultiplicite(arete) && random.nextInt(++noOfAretes) == 0)
+                    areteChoisie = arete;
+            }
+            changerPont(hashiModel.getIle(graphe.getStart(areteChoisie)), hashiModel.getIle(graphe.getEnd(areteChoisie)));
+            noOfReparations++;
+        }
+        noOfRejets++;
+        return false;
+    }
+
+    // makes single pont between ile and otherIle a double one or conversely, changing the ponts required by them
+    private void changerPont(Ile ile, Ile otherIle) {
+        Pont pont = hashiModel.getPontEntre(ile, otherIle);
+        boolean isDouble = pont.isDouble();
+        hashiModel.supprimerPontEntreIles(pont, false);
+        if (!isDouble)
+            hashiModel.ajouterPontEntreIles(pont.getStart(), pont.getEnd(), true);
+    }
+
+    /**
+     * Draws the next random numbers from the <code>seed</code>, as if
+     * <code>this</code> generator had just been constructed with it, keeping
+     * its counts. Lets a thread reuse its generator for puzzles each given by
+     * its own seed.
+     */
+    void reinitialiser(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Gets the number of puzzles returned by <code>this</code> generator.
+     */
+    public long getNbGrilles() {
+        return noOfGrilles;
+    }
+
+    /**
+     * Gets the number of solved puzzles built by <code>this</code> generator,
+     * including those thrown away because they did not have the number of
+     * iles asked for or because they could not be made unique.
+     */
+    public long getNbEssais() {
+        return noOfEssais;
+    }
+
+    /**
+     * Gets the number of ponts changed by <code>this</code> generator to
+     * exclude other solutions of its puzzles.
+     */
+    public long getNbReparations() {
+        return noOfReparations;
+    }
+
+    /**
+     * Gets the number of solved puzzles thrown away by <code>this</code>
+     * generator because they could not be made unique.
+     */
+    public long getNbRejets() {
+        return noOfRejets;
+    }
+
+    /**
+     * Gets the number of iles added by <code>this</code> generator by
+     * splitting a pont because no ile could be added next to the others.
+     */
+    public long getNbScissions() {
+        return noOfScissions;
+    }
+
+    /**
+     * Gets the number of solved puzzles built for the last puzzle returned by
+     * <code>this</code> generator, i.e. one plus the number of times it
+     * started again from an empty field.
+     */
+    public int getNbEssaisDerniereGrille() {
+        return noOfEssaisGrille;
+    }
+
+    /**
+     * Gets the number of iles added by splitting a pont while building the
+     * last puzzle returned by <code>this</code> generator, including those of
+     * the solved puzzles thrown away.
+     */
+    public int getNbScissionsDerniereGrille() {
+        return noOfScissionsGrille;
+    }
+
     // populate model with iles and ponts until requirements are met
     private void addSolvedHashiPuzzleToModel(int noOfIles) {
-        pontableIles = new ArrayList<>();
+        pontableIles.clear(); // reused by every attempt
         // put first ile on field
         addIleAtRandomPositionToModel();
         // rajouter les iles manquant afin que la grille soit solvable
-        while (hashiModel.getNbIles() < noOfIles && !pontableIles.isEmpty()) 
-            addIleWithPontToExistingIle();
+        while (hashiModel.getNbIles() < noOfIles) {
+            if (!pontableIles.isEmpty())
+                addIleWithPontToExistingIle();
+            else if (!addIleOnRandomPont())
+                break; // no room left, puzzle thrown away
+        }
     }
 
     private void addIleAtRandomPositionToModel() {
@@ -157,6 +388,43 @@ public class GrilleGenerator {
         hashiModel.ajouterPontEntreIles(oldPont.getEnd(), newIle, oldPont.isDouble());
     }
 
+    /**
+     * Adds an ile on a cell of a pont, picked at random among the cells of
+     * all ponts on which an ile can be placed, and replaces the pont by two
+     * ponts of the same kind from its iles to the new ile. The puzzle stays
+     * solved and the new ile may have room for ponts in the other directions,
+     * so that iles can be added although no ile has room left, instead of
+     * starting again from an empty field.
+     * 
+     * @return true if an ile was added, false if no cell of a pont can hold
+     *         an ile
+     */
+    private boolean addIleOnRandomPont() {
+        Position choisie = null;
+        int noOfCandidates = 0;
+        for (Ile ile : hashiModel.getIles()) {
+            for (Direction direction : new Direction[] { Direction.EST, Direction.SUD }) {
+                if (hashiModel.getPont(ile, direction) == null)
+                    continue;
+                for (Position coords = ile.getCoords().getNextCoordsIn(direction); !hashiModel.ileAt(coords.x, coords.y); coords = coords.getNextCoordsIn(direction)) {
+                    if (hashiModel.estValIlePosition(coords.x, coords.y) && random.nextInt(++noOfCandidates) == 0)
+                        choisie = coords;
+                }
+            }
+        }
+        if (choisie == null)
+            return false;
+        Pont oldPont = hashiModel.getPontAt(choisie.x, choisie.y);
+        hashiModel.supprimerPontEntreIles(oldPont, true);
+        addIleToModelAndPontableIles(choisie.x, choisie.y);
+        Ile newIle = hashiModel.getIleAt(choisie.x, choisie.y);
+        hashiModel.ajouterPontEntreIles(oldPont.getStart(), newIle, oldPont.isDouble());
+        hashiModel.ajouterPontEntreIles(oldPont.getEnd(), newIle, oldPont.isDouble());
+        noOfScissions++;
+        noOfScissionsGrille++;
+        return true;
+    }
+
     /**
      * Generates a list of coordinates in a random direction from the
      * <code>existingIle</code> where a neighbor ile to
@@ -181,26 +449,28 @@ public class GrilleGenerator {
      * 
      * @param existingIle that is used for generating coordinates
      * @return A list of coordinates on which a neighbor ile to the existing
-     *         ile can be placed
+     *         ile can be placed, reused by the next call
      */
     private List<Position> getValidNeighborIleCoords(Ile existingIle) {
-        List<Position> validNeighborIleCoords = Collections.EMPTY_LIST;
+        validNeighborIleCoords.clear();
         Iterator<Direction> neighborDirectionsIter = getDirectsWithoutPontsRandOrd(existingIle).iterator();
         // check directions from existingIle to find coords in which pont to new ile can be built until no direction left or possible direction found
         while (neighborDirectionsIter.hasNext() && validNeighborIleCoords.isEmpty()) 
-            validNeighborIleCoords = getValidNeighborIleCoords(existingIle, neighborDirectionsIter.next());
+            getValidNeighborIleCoords(existingIle, neighborDirectionsIter.next());
         return validNeighborIleCoords;
     }
 
     // returns a shuffled list of directions in which no pont has been built from
     // the ile
     private List<Direction> getDirectsWithoutPontsRandOrd(Ile ile) {
-        List<Direction> directionsWithoutPonts = new ArrayList<>();
+        directionsWithoutPonts.clear();
         for (Direction direction : Direction.values()) {
             if (hashiModel.getPont(ile, direction) == null) 
                 directionsWithoutPonts.add(direction);
         }
-        Collections.shuffle(directionsWithoutPonts);
+        // Fisher-Yates shuffle, Collections.shuffle only draws from a Random
+        for (int i = directionsWithoutPonts.size() - 1; i > 0; i--)
+            Collections.swap(directionsWithoutPonts, i, random.nextInt(i + 1));
         return directionsWithoutPonts;
     }
 
@@ -219,18 +489,20 @@ public class GrilleGenerator {
      * @param existingIle that is used for generating coordinates
      * @param direction      in which coordinates are searched for
      * @return A list of coordinates in <code>direction</code> on which a neighbor
-     *         ile to the existing ile can be placed
+     *         ile to the existing ile can be placed, reused by the next call
      */
     private List<Position> getValidNeighborIleCoords(Ile existingIle, Direction direction) {
-        List<Position> validNeighborIleCoords = new ArrayList<>();
-        // add all coordinates that a neighbor ile could be built on to list
-        Position coords = existingIle.getCoords().getNextCoordsIn(direction);
-        while (hashiModel.estValidePosition(coords.x, coords.y) && !hashiModel.ileAt(coords.x, coords.y)) {
+        validNeighborIleCoords.clear();
+        // add all coordinates that a neighbor ile could be built on to list, i.e. empty cells
+        // and the cell after them if a pont crosses it
+        int noOfEmptyCells = hashiModel.getNbCasesLibres(existingIle.getX(), existingIle.getY(), direction);
+        Position coords = existingIle.getCoords();
+        for (int step = 0; step <= noOfEmptyCells; step++) {
+            coords = coords.getNextCoordsIn(direction);
+            if (!hashiModel.estValidePosition(coords.x, coords.y) || step == noOfEmptyCells && !hashiModel.pontAt(coords.x, coords.y))
+                break;
             if (hashiModel.estValIlePosition(coords.x, coords.y)) 
                 validNeighborIleCoords.add(coords);
-            if (hashiModel.pontAt(coords.x, coords.y)) 
-                break;
-            coords = coords.getNextCoordsIn(direction);
         }
         return validNeighborIleCoords;
     }
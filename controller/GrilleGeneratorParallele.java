@@ -0,0 +1,181 @@
+package controller;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import modele.GrilleInterface;
+import modele.GrilleType;
+
+/**
+ *
+ * Generator of large numbers of <code>width</code> x <code>height</code>
+ * puzzles of <code>noOfIles</code> iles, split across the threads of a
+ * {@link ForkJoinPool}. The puzzles are numbered from 0 and the puzzle of a
+ * number is generated by a {@link GrilleGenerator} from a seed drawn from the
+ * seed of the batch and the number only, so that it does not depend on the
+ * thread generating it nor on the order of generation. Thus, a batch can be
+ * generated in shards of consecutive numbers, by any number of machines.
+ *
+ * <p>
+ * Every thread reuses its own generator, with its solver and its lists, for
+ * all the puzzles it generates, so that no generator is shared by several
+ * threads.
+ * </p>
+ */
+public final class GrilleGeneratorParallele {
+
+    private static final long GAMMA = 0x9E3779B97F4A7C15L; // golden ratio, spreads seeds of consecutive numbers
+
+    private final ForkJoinPool pool;
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int noOfIles;
+    private final ThreadLocal<GrilleGenerator> generateurs; // of the threads generating puzzles
+
+    /**
+     * Constructs a generator running in the {@link ForkJoinPool#commonPool()
+     * common pool}.
+     *
+     * @param typeGrille     kind of model holding the generated puzzles
+     * @param solutionUnique true if the puzzles generated must have a single
+     *                       solution
+     * @param seed           of the batch, the same seed gives the same puzzles
+     * @param width          of the puzzles
+     * @param height         of the puzzles
+     * @param noOfIles       of the puzzles
+     * @throws IllegalArgumentException if no puzzle of <code>noOfIles</code>
+     *                                  iles can be generated on a
+     *                                  <code>width</code> x <code>height</code>
+     *                                  field, see
+     *                                  {@link GrilleGenerator#getPuzzleSituationModel(int, int, int)}
+     */
+    public GrilleGeneratorParallele(GrilleType typeGrille, boolean solutionUnique, long seed, int width, int height, int noOfIles) throws IllegalArgumentException {
+        this(ForkJoinPool.commonPool(), typeGrille, solutionUnique, seed, width, height, noOfIles);
+    }
+
+    /**
+     * Constructs a generator running in the <code>pool</code>.
+     *
+     * @param pool           running the generation of the puzzles given to a
+     *                       sink
+     * @param typeGrille     kind of model holding the generated puzzles
+     * @param solutionUnique true if the puzzles generated must have a single
+     *                       solution
+     * @param seed           of the batch, the same seed gives the same puzzles
+     * @param width          of the puzzles
+     * @param height         of the puzzles
+     * @param noOfIles       of the puzzles
+     * @throws IllegalArgumentException if no puzzle of <code>noOfIles</code>
+     *                                  iles can be generated on a
+     *                                  <code>width</code> x <code>height</code>
+     *                                  field
+     */
+    public GrilleGeneratorParallele(ForkJoinPool pool, GrilleType typeGrille, boolean solutionUnique, long seed, int width, int height, int noOfIles) throws IllegalArgumentException {
+        GrilleGenerator.verifierConfiguration(width, height, noOfIles);
+        this.pool = pool;
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.noOfIles = noOfIles;
+        this.generateurs = ThreadLocal.withInitial(() -> new GrilleGenerator(typeGrille, solutionUnique, seed));
+    }
+
+    /**
+     * Generates the puzzle of the <code>numero</code> in the calling thread.
+     *
+     * @param numero of the puzzle in the batch
+     * @return the same puzzle for the same seed of the batch and number
+     */
+    public GrilleInterface generer(long numero) {
+        GrilleGenerator generateur = generateurs.get();
+        generateur.reinitialiser(melanger(seed + numero * GAMMA));
+        return generateur.getPuzzleSituationModel(width, height, noOfIles);
+    }
+
+    // bijective mixing of the bits of z (finalizer of SplittableRandom), so that close seeds give unrelated numbers
+    private static long melanger(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Gets a lazy, parallel stream of the puzzles of the numbers from
+     * <code>premier</code> to <code>premier + noOfGrilles</code> excluded, in
+     * the order of their numbers. A puzzle is only generated when the stream
+     * needs it, by the thread running the stream operation: threads of the
+     * common pool, or of the pool of the task running it.
+     *
+     * @param premier     number of the first puzzle
+     * @param noOfGrilles number of puzzles
+     * @return stream of the puzzles, which can be made sequential
+     */
+    public Stream<GrilleInterface> grilles(long premier, long noOfGrilles) {
+        return LongStream.range(premier, premier + noOfGrilles).parallel().mapToObj(this::generer);
+    }
+
+    /**
+     * Generates the puzzles of the numbers from <code>premier</code> to
+     * <code>premier + noOfGrilles</code> excluded in the pool of
+     * <code>this</code> generator and gives them to the <code>puits</code>.
+     * In order, the puzzles are given one at a time in the order of their
+     * numbers, the puzzles generated before their turn being kept until then.
+     * Out of order, each puzzle is given as soon as it is generated, by the
+     * thread generating it, so that the sink must be thread-safe.
+     *
+     * <p>
+     * If the calling thread is interrupted while waiting, the puzzles not
+     * being generated yet are not generated and the interrupted status of the
+     * thread is kept.
+     * </p>
+     *
+     * @param premier     number of the first puzzle
+     * @param noOfGrilles number of puzzles
+     * @param dansLOrdre  true if the puzzles must be given in the order of their
+     *                    numbers
+     * @param puits       to which the puzzles are given
+     * @return number of puzzles given to the sink, less than
+     *         <code>noOfGrilles</code> if the generation was interrupted
+     */
+    public long generer(long premier, long noOfGrilles, boolean dansLOrdre, Consumer<? super GrilleInterface> puits) {
+        AtomicBoolean annule = new AtomicBoolean();
+        AtomicLong noOfDonnees = new AtomicLong();
+        Stream<GrilleInterface> grilles = LongStream.range(premier, premier + noOfGrilles).parallel().mapToObj(numero -> {
+            if (annule.get())
+                throw new CancellationException();
+            return generer(numero);
+        });
+        Consumer<GrilleInterface> donner = grille -> {
+            puits.accept(grille);
+            noOfDonnees.incrementAndGet();
+        };
+        // waited for by a CompletableFuture, as a thread waiting for a ForkJoinTask not started yet runs it itself, deaf to interruptions
+        CompletableFuture<Void> generation = CompletableFuture.runAsync(() -> {
+            if (dansLOrdre)
+                grilles.forEachOrdered(donner);
+            else grilles.forEach(donner);
+        }, pool);
+        try {
+            generation.get();
+        } catch (InterruptedException e) {
+            annule.set(true);
+            try {
+                generation.join(); // tasks stop before their next puzzle
+            } catch (CancellationException | CompletionException ignored) {
+            }
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return noOfDonnees.get();
+    }
+}
@@ -1,39 +1,59 @@
 package controller;
 
 
-import java.util.Arrays;
-import java.util.LinkedList;
-
 import modele.Position.Direction;
+import modele.GrapheCandidats;
 import modele.Pont;
 import modele.Ile;
 import modele.GrilleInterface;
 
 /**
- * 
- * Instances of the <code>GrilleStatut<code>Statut
+ *
+ * Instances of the <code>GrilleStatut</code> class determine the state of a
+ * puzzle.
+ *
+ * <p>
+ * The components of the iles connected by ponts are kept in a disjoint-set
+ * forest by ile id, each component knowing its number of iles and the sum of
+ * the ponts its iles miss. The instance listens to the changes of ponts of the
+ * puzzle: adding a pont merges two components in almost constant time, while
+ * removing one only visits the component it belonged to. Iles with too many
+ * ponts and iles that cannot get the ponts they miss any more are counted,
+ * updated for the iles around the pont changed, so that the state of the
+ * puzzle is known without visiting all iles.
+ * </p>
  */
 public class GrilleStatut {
 
+    private static final Direction[] DIRECTIONS = Direction.values();
+
     private final GrilleInterface modele;
-    private final Ile[] allIles;
-    private final boolean[] checkedForIsolation;
-    // checkedForIsolation[i] true if it has been checked that ile iles[i]
-    // belongs to isolated component, i. e. component to which no pont can be
-    // built (iles of component have all ponts)
+    private GrapheCandidats graphe; // layout components were computed for
+    private byte[] multiplicites; // ponts by arete
+    private int[] parents; // parent of ile in its tree, root if it is its own parent
+    private int[] tailles; // number of iles of component by root
+    private int[] manquants; // sum of ponts missing by the iles of component by root
+    private int[] suivants; // next ile of the same component, the iles of a component forming a cycle
+    private int[] visites; // ile visited if equal to visite
+    private int visite;
+    private int[] parcours; // iles to visit
+    private boolean[] bloquees; // true if ile cannot get the ponts it misses any more
+    private int noOfBloquees;
+    private int noOfNegatives; // iles with too many ponts
+    private int noOfComposantes;
+    private int noOfComposantesFermees; // components whose iles miss no pont in sum
 
     /**
      * Constructs a <code>PuzzleStateChecker</code> for determining and setting the
      * state of the <code>modele</code>.
-     * 
+     *
      * @param modele
      *            whose state is to be determined and set
      */
     public GrilleStatut(GrilleInterface modele) {
         this.modele = modele;
-        this.allIles = new Ile[modele.getNbIles()];
-        modele.getIles().toArray(allIles);
-        this.checkedForIsolation = new boolean[allIles.length];
+        initialiser();
+        modele.ajouterEcouteur(this::pontModifie);
     }
 
     /**
@@ -45,62 +65,200 @@ public class GrilleStatut {
     }
 
     private Statut getPuzzleState() {
-        resetIsolationCheck();
-        for (int ileIndex = 0; ileIndex < allIles.length; ileIndex++) {
-            if (allIles[ileIndex].getNoOfPontsMissing() < 0) 
-                return Statut.ERRONE;
-            if (allIles[ileIndex].getNoOfPontsMissing() == 0) {
-                int noOfIlesOfIsolatedGraph = checkForIsolationAndReturnNoOfIlesOfIsolatedComponent(ileIndex);
-                if (noOfIlesOfIsolatedGraph > 0) 
-                    return (noOfIlesOfIsolatedGraph == modele.getNbIles()) ? Statut.RESOLU : Statut.NON_RESOLU; // not all iles can be connected since there is isolation
-            } else if (!reqiredPontsCanBeBuilt(allIles[ileIndex])) return Statut.NON_RESOLU;
+        if (graphe != modele.getGraphe()) // iles changed
+            initialiser();
+        if (noOfNegatives > 0)
+            return Statut.ERRONE;
+        if (noOfComposantesFermees > 0)
+            return noOfComposantes == 1 ? Statut.RESOLU : Statut.NON_RESOLU; // not all iles can be connected since there is isolation
+        return noOfBloquees > 0 ? Statut.NON_RESOLU : Statut.INITIAL;
+    }
+
+    // computes components and counts from current ponts of model
+    private void initialiser() {
+        graphe = modele.getGraphe();
+        int noOfIles = graphe.getNbIles();
+        multiplicites = new byte[graphe.getNbAretes()];
+        parents = new int[noOfIles];
+        tailles = new int[noOfIles];
+        manquants = new int[noOfIles];
+        suivants = new int[noOfIles];
+        visites = new int[noOfIles];
+        parcours = new int[noOfIles];
+        bloquees = new boolean[noOfIles];
+        noOfBloquees = noOfNegatives = noOfComposantesFermees = 0;
+        noOfComposantes = noOfIles;
+        for (int ile = 0; ile < noOfIles; ile++) {
+            parents[ile] = suivants[ile] = ile;
+            tailles[ile] = 1;
+            manquants[ile] = modele.getIle(ile).getNoOfPontsMissing();
+            if (manquants[ile] < 0)
+                noOfNegatives++;
+            if (manquants[ile] == 0)
+                noOfComposantesFermees++;
+        }
+        for (int arete = 0; arete < multiplicites.length; arete++) {
+            multiplicites[arete] = (byte) modele.getMultiplicite(arete);
+            if (multiplicites[arete] > 0)
+                unir(graphe.getStart(arete), graphe.getEnd(arete));
+        }
+        for (int ile = 0; ile < noOfIles; ile++)
+            actualiserBlocage(ile);
+    }
+
+    private void pontModifie(Ile start, Ile end, int ancienneMultiplicite, int nouvelleMultiplicite) {
+        if (graphe != modele.getGraphe()) { // iles changed
+            initialiser();
+            return;
+        }
+        int arete = graphe.getArete(start.getId(), start.getY() == end.getY() ? Direction.EST : Direction.SUD);
+        multiplicites[arete] = (byte) nouvelleMultiplicite;
+        int difference = nouvelleMultiplicite - ancienneMultiplicite;
+        changerManquants(start, difference);
+        changerManquants(end, difference);
+        if (ancienneMultiplicite == 0)
+            unir(start.getId(), end.getId());
+        else if (nouvelleMultiplicite == 0)
+            separer(start.getId(), end.getId());
+        // iles whose ponts, neighbors missing ponts or free lines may have changed
+        actualiserBlocageAutour(start.getId());
+        actualiserBlocageAutour(end.getId());
+        for (int i = 0; i < graphe.getNbCroisements(arete); i++) {
+            int croisement = graphe.getCroisement(arete, i);
+            actualiserBlocage(graphe.getStart(croisement));
+            actualiserBlocage(graphe.getEnd(croisement));
         }
-        return Statut.INITIAL;
     }
 
-    private void resetIsolationCheck() {
-        for (int i = 0; i < checkedForIsolation.length; i++) 
-            checkedForIsolation[i] = false;
+    // ile got difference ponts more
+    private void changerManquants(Ile ile, int difference) {
+        int manquant = ile.getNoOfPontsMissing();
+        int ancienManquant = manquant + difference;
+        if (ancienManquant < 0 != manquant < 0)
+            noOfNegatives += manquant < 0 ? 1 : -1;
+        int racine = racine(ile.getId());
+        fermer(racine, -1);
+        manquants[racine] -= difference;
+        fermer(racine, 1);
     }
 
-    /**
-     * Checks if it was already checked if ile in iles array at ileIndex
-     * belongs to isolated component and returns the number of iles belonging to
-     * this isolated component. If the ile at ileIndex does not belong to an
-     * isolated component, 0 is returned, but nevertheless all iles of component
-     * are marked as checked for isolation so that method returns quicker in the
-     * future.
-     * 
-     * 
-     * @param ileIndex
-     *            of ile in iles array to be checked
-     * @return number of iles belonging to isolated component
-     */
-    private int checkForIsolationAndReturnNoOfIlesOfIsolatedComponent(int ileIndex) {
-        if (checkedForIsolation[ileIndex]) return 0; // else breadthFirstSearch (BFS) starting from ile iles[ileIndex]
-
-        LinkedList<Ile> queue = new LinkedList<>();
-        queue.add(allIles[ileIndex]);
-        boolean ileMissingPontsFound = false;
-        int noOfIlesOfIsolatedComponent = 0;
-        while (!queue.isEmpty()) {
-            Ile front = queue.poll();
-            int frontIndex = Arrays.binarySearch(allIles, front);
-            if (!checkedForIsolation[frontIndex]) { // termination condition
-                if (front.getNoOfPontsMissing() == 0) 
-                    noOfIlesOfIsolatedComponent++;
-                else ileMissingPontsFound = true; // component, that ile at ileIndex belongs to, is not isolated
-                checkedForIsolation[frontIndex] = true; // necessary for termination and quick returns in future
-                addConnectedNeighborsToQueue(queue, front); // get rest of component
+    // adds sens to number of closed components if component of racine is closed
+    private void fermer(int racine, int sens) {
+        if (manquants[racine] == 0)
+            noOfComposantesFermees += sens;
+    }
+
+    private int racine(int ile) {
+        while (parents[ile] != ile) {
+            parents[ile] = parents[parents[ile]]; // path halving
+            ile = parents[ile];
+        }
+        return ile;
+    }
+
+    private void unir(int ile, int otherIle) {
+        int racine = racine(ile);
+        int autreRacine = racine(otherIle);
+        if (racine == autreRacine)
+            return;
+        if (tailles[racine] < tailles[autreRacine]) { // smaller tree below larger one
+            int racinePlusGrande = autreRacine;
+            autreRacine = racine;
+            racine = racinePlusGrande;
+        }
+        fermer(racine, -1);
+        fermer(autreRacine, -1);
+        parents[autreRacine] = racine;
+        tailles[racine] += tailles[autreRacine];
+        manquants[racine] += manquants[autreRacine];
+        fermer(racine, 1);
+        // join cycles of iles
+        int suivant = suivants[racine];
+        suivants[racine] = suivants[autreRacine];
+        suivants[autreRacine] = suivant;
+        noOfComposantes--;
+    }
+
+    // splits component of ile and otherIle if they are not connected any more after removal of pont between them
+    private void separer(int ile, int otherIle) {
+        visite++;
+        int noOfVisitees = visiterComposante(ile, otherIle);
+        if (visites[otherIle] == visite)
+            return;
+        int racine = racine(ile);
+        fermer(racine, -1);
+        // iles visited form component of ile, the other iles of old component the one of otherIle
+        int taille = tailles[racine];
+        int courante = racine;
+        for (int i = 0; i < taille; i++, courante = suivants[courante])
+            parcours[i] = courante;
+        tailles[ile] = noOfVisitees;
+        tailles[otherIle] = taille - noOfVisitees;
+        manquants[ile] = manquants[otherIle] = 0;
+        int dernierVisitee = ile, dernierNonVisitee = otherIle;
+        for (int i = 0; i < taille; i++) {
+            courante = parcours[i];
+            boolean visitee = visites[courante] == visite;
+            int nouvelleRacine = visitee ? ile : otherIle;
+            parents[courante] = nouvelleRacine;
+            manquants[nouvelleRacine] += modele.getIle(courante).getNoOfPontsMissing();
+            if (courante != ile && courante != otherIle) { // append to cycle of new component
+                if (visitee) {
+                    suivants[dernierVisitee] = courante;
+                    dernierVisitee = courante;
+                } else {
+                    suivants[dernierNonVisitee] = courante;
+                    dernierNonVisitee = courante;
+                }
             }
         }
-        return ileMissingPontsFound ? 0 : noOfIlesOfIsolatedComponent;
+        suivants[dernierVisitee] = ile;
+        suivants[dernierNonVisitee] = otherIle;
+        fermer(ile, 1);
+        fermer(otherIle, 1);
+        noOfComposantes++;
     }
 
-    private void addConnectedNeighborsToQueue(LinkedList<Ile> queue, Ile ile) {
-        for (Direction direction : Direction.values()) {
-            Pont pont = modele.getPont(ile, direction);
-            if (pont != null) queue.add(pont.getOtherEnd(ile));
+    // marks iles connected to ile by ponts as visited, stops early if otherIle is reached
+    private int visiterComposante(int ile, int otherIle) {
+        int noOfVisitees = 1;
+        int taille = 0;
+        parcours[taille++] = ile;
+        visites[ile] = visite;
+        while (taille > 0) {
+            int courante = parcours[--taille];
+            for (Direction direction : DIRECTIONS) {
+                int arete = graphe.getArete(courante, direction);
+                if (arete >= 0 && multiplicites[arete] > 0) {
+                    int voisine = graphe.getAutreExtremite(arete, courante);
+                    if (visites[voisine] != visite) {
+                        visites[voisine] = visite;
+                        if (voisine == otherIle)
+                            return noOfVisitees;
+                        parcours[taille++] = voisine;
+                        noOfVisitees++;
+                    }
+                }
+            }
+        }
+        return noOfVisitees;
+    }
+
+    private void actualiserBlocageAutour(int ile) {
+        actualiserBlocage(ile);
+        for (Direction direction : DIRECTIONS) {
+            int arete = graphe.getArete(ile, direction);
+            if (arete >= 0)
+                actualiserBlocage(graphe.getAutreExtremite(arete, ile));
+        }
+    }
+
+    private void actualiserBlocage(int id) {
+        Ile ile = modele.getIle(id);
+        boolean bloquee = ile.getNoOfPontsMissing() > 0 && !reqiredPontsCanBeBuilt(ile);
+        if (bloquee != bloquees[id]) {
+            bloquees[id] = bloquee;
+            noOfBloquees += bloquee ? 1 : -1;
         }
     }
 
@@ -108,7 +266,7 @@ public class GrilleStatut {
      * Returns true if it is (still) possible to build all the ponts the
      * <code>ile</code> requires, otherwise false. The <code>ile</code> is
      * missing at least one pont.
-     * 
+     *
      * @param ile
      *            that is to be checked.
      * @return true if it is (still) possible to build all the ponts the
@@ -116,11 +274,11 @@ public class GrilleStatut {
      */
     private boolean reqiredPontsCanBeBuilt(Ile ile) {
         int noOfBuildablePonts = 0;
-        for (Direction direction : Direction.values()) {
+        for (Direction direction : DIRECTIONS) {
             Ile neighbor = modele.getIleVoisine(ile, direction);
             if (neighbor != null && neighbor.getNoOfPontsMissing() > 0) {
                 Pont pont = modele.getPont(ile, direction);
-                if (neighbor.getNoOfPontsMissing() > 1 && pont == null) 
+                if (neighbor.getNoOfPontsMissing() > 1 && pont == null)
                     noOfBuildablePonts += 2;
                 else if (pont == null || !pont.isDouble())
                     noOfBuildablePonts++; // on pont can still be built in direction
@@ -128,7 +286,7 @@ public class GrilleStatut {
         }
         return ile.getNoOfPontsMissing() <= noOfBuildablePonts;
     }
-    
+
     public enum Statut {
 
         INITIAL,
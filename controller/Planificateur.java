@@ -0,0 +1,96 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import modele.EtatGrille;
+
+/**
+ *
+ * Finds the next pont that must certainly be built on a puzzle by using
+ * {@link Regle rules}, without building it. The planner only reads an
+ * {@link EtatGrille state} of the puzzle, e.g. taken by
+ * {@link modele.GrilleInterface#getEtat()} in the thread owning the model, and
+ * keeps no state between calls, so that one instance can plan moves for any
+ * number of puzzles in any number of threads, the states of which may share
+ * their layout.
+ */
+public final class Planificateur {
+
+    private final List<Regle> regles;
+
+    /**
+     * Constructs a planner using all {@link Regles rules} of the application.
+     */
+    public Planificateur() {
+        this(Arrays.asList(Regles.values()));
+    }
+
+    /**
+     * Constructs a planner using the <code>regles</code>, applied in their
+     * order to every ile.
+     *
+     * @param regles
+     *            rules finding the ponts that must certainly be built
+     */
+    public Planificateur(List<Regle> regles) {
+        this.regles = Collections.unmodifiableList(new ArrayList<>(regles));
+    }
+
+    /**
+     * Gets the rules used, in the order in which they are applied to an ile.
+     */
+    public List<Regle> getRegles() {
+        return regles;
+    }
+
+    /**
+     * Finds a pont that must certainly be built on the puzzle whose ponts are
+     * those of <code>etat</code>, examining the iles in the order of their
+     * ids. The state is not changed.
+     *
+     * @param etat
+     *            ponts of the puzzle
+     * @return pont to be built, null if the rules find none
+     */
+    public Coup planifier(EtatGrille etat) {
+        Voisinage voisinage = new Voisinage();
+        for (int ile = 0; ile < etat.getGraphe().getNbIles(); ile++) {
+            Coup coup = planifier(voisinage, etat, ile, null, null);
+            if (coup != null)
+                return coup;
+        }
+        return null;
+    }
+
+    /**
+     * Applies the rules to the <code>ile</code> until one finds a pont.
+     *
+     * @param voisinage
+     *            filled with the ile, owned by the calling thread
+     * @param noOfApplications
+     *            ponts found by rule, incremented for the rule finding the
+     *            pont, may be null
+     * @param durees
+     *            nanoseconds spent by rule, incremented for every rule applied,
+     *            may be null
+     * @return pont to be built, null if the rules find none
+     */
+    Coup planifier(Voisinage voisinage, EtatGrille etat, int ile, long[] noOfApplications, long[] durees) {
+        voisinage.initialiser(etat, ile);
+        for (int i = 0; i < regles.size(); i++) {
+            long debut = durees == null ? 0 : System.nanoTime();
+            int arete = regles.get(i).appliquer(voisinage);
+            if (durees != null)
+                durees[i] += System.nanoTime() - debut;
+            if (arete >= 0) {
+                if (noOfApplications != null)
+                    noOfApplications[i]++;
+                return new Coup(etat.getGraphe(), arete, etat.getMultiplicite(arete) + 1, regles.get(i));
+            }
+        }
+        return null;
+    }
+}
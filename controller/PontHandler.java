@@ -2,31 +2,48 @@ package controller;
 
 import java.util.ArrayList;	
 
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 
 import modele.Position.Direction;
-import modele.Pont;
+import modele.EtatGrille;
+import modele.GrapheCandidats;
+import modele.Mouvement;
 import modele.Ile;
 import modele.GrilleInterface;
 
-//TODO: Get sure moves, but do not make them here. Instead return move to main controller und make it in the main controller.
-
 /**
  * An instance of the class <code>PontAdder</code> can add a pont to a
  * Hashiwokakeru puzzle if this pont must certainly be added to the puzzle
  * based on the puzzle's current state (see {@link #makeSureMove() makeSureMove}
  * method).
+ * 
+ * <p>
+ * The ponts are found by a {@link Planificateur}, applying its
+ * {@link Regle rules} to a state of the ponts of the puzzle kept up to date
+ * by listening to the model, and then built on the model. The number of ponts
+ * found by every rule and the time it took are counted, so that it can be
+ * seen which rules are worth applying. Callers that must not change the model,
+ * e.g. to compute a hint in another thread, use a {@link Planificateur}
+ * directly.
+ * </p>
  */
 public class PontHandler {
 
     private final GrilleInterface modele;
     private final GrilleStatut stateChecker;
-    private List<Ile> neighbors;
-    private List<Ile> neighborsToBuildPont;
-    private List<Ile> neighborsToBuildDoublePont;
-    private List<Ile> neighborsRequiringMoreThanOnePont;
-    private List<Ile> neighborsRequiringMoreThanTwoPonts;
+    private final Planificateur planificateur;
+    private final Voisinage voisinage = new Voisinage();
+    private EtatGrille etat; // ponts of modele, changed with them
+    private final long[] noOfApplications; // ponts found by rule
+    private final long[] durees; // nanoseconds spent by rule
+    private FileIles aExaminer; // iles to be checked by the rules
+    private EtatGrille solution; // last solution found by solver
+    private CacheSolutions.Forme forme; // canonical form of grapheForme, key of its solution in the cache
+    private GrapheCandidats grapheForme;
+
+    private static final long MAX_NO_OF_NODES = 1_000_000, MAX_SOLVING_TIME = 10_000; // in milliseconds
+    private static final CacheSolutions cache = new CacheSolutions(64); // solutions of the puzzles solved by any handler
 
     /**
      * Constructs an instance of a <code>PontAdder</code>.
@@ -38,13 +55,36 @@ public class PontHandler {
      *            to update the state of the puzzle after a pont has been added
      */
     public PontHandler(GrilleInterface modele, GrilleStatut stateChecker) {
+        this(modele, stateChecker, Arrays.asList(Regles.values()));
+    }
+
+    /**
+     * Constructs an instance of a <code>PontAdder</code> finding ponts by
+     * using the <code>regles</code> given, in their order.
+     * 
+     * @param modele
+     *            which holds the puzzle to which a pont is to be added as well as
+     *            the puzzles state
+     * @param stateChecker
+     *            to update the state of the puzzle after a pont has been added
+     * @param regles
+     *            rules finding the ponts that must certainly be built
+     */
+    public PontHandler(GrilleInterface modele, GrilleStatut stateChecker, List<Regle> regles) {
         this.modele = modele;
         this.stateChecker = stateChecker;
+        this.planificateur = new Planificateur(regles);
+        this.noOfApplications = new long[regles.size()];
+        this.durees = new long[regles.size()];
+        toutExaminer();
+        modele.ajouterEcouteur(this::pontModifie);
     }
 
     /**
      * Adds a pont to the puzzle if a pont can be found that must certainly be
-     * built based <strong>on the current state</strong> of the puzzle.
+     * built based <strong>on the current state</strong> of the puzzle. If the
+     * rules find no such pont, a pont of a solution keeping the current ponts
+     * is added.
      * 
      * <p>
      * <strong>Important:</strong> If the user has already added ponts by himself
@@ -56,7 +96,7 @@ public class PontHandler {
      * <p>
      * <strong>Important:</strong> No pont is added if
      * <ul>
-     * <li>no pont can be found,</li>
+     * <li>no solution can be found within 10 seconds,</li>
      * <li>the puzzle is unsolvable and this was recognized by the application,</li>
      * <li>the puzzle is invalid or already solved.
      * </ul>
@@ -65,184 +105,179 @@ public class PontHandler {
      * @return true if a pont was added, false otherwise
      */
     public boolean makeSureMove() {
-        return modele.nonResolu() ? makeSureMoveByUsingRules() : false; // TODO: || trialAndError(); // here an extension could be added to solve puzzle														// differently
+        return modele.nonResolu() ? makeSureMoveByUsingRules() || makeMoveOfSolution() : false;
     }
 
-    /*
-     * Goal: Solving every puzzle, i.e., adding a pont in every case that a pont
-     * can be added to get to the solution of the puzzle.
-     * 
-     * Solution idea 1: If no sure move can be made, make an unsure move (here I can
-     * use some heuristics to choose the pont to add), solve the puzzle with the
-     * solver without refreshing the view until a solution is found or the puzzle
-     * becomes unsolvable. If solution is found, add first pont added to the
-     * puzzle (unsure pont). If puzzle becomes unsolvable, remove last unsure
-     * pont added and make another unsure move that has not been made before. Stop
-     * if a certain time period has passed (all ponts added must be removed).
-     * 
-     * 
-     */
-
-    private static int NO_OF_TRIALS = 0;
-
     /**
      * 
-     * Finds a sure move by trial and error and makes it.
+     * Adds a pont of a solution of the puzzle found by a {@link SolveurParallele}
+     * keeping the ponts already built. The solution is searched again only if
+     * the ponts of the puzzle no longer lead to the last solution found, nor
+     * to the solution of the puzzle in the {@link #getCache() cache}.
      * 
-     * @return true if sure move could be made.
+     * @return true if a pont was added, false if no solution could be found
+     *         within the budget of the solver
      */
-    private boolean trialAndError() {
-        NO_OF_TRIALS++;
-        if (NO_OF_TRIALS <= 100) {
-            Iterator<Ile> iles = modele.getIles().iterator();
-            while (iles.hasNext()) { // TODO: Time limit
-                Ile ile = iles.next();
-                if (ile.getNoOfPontsMissing() > 0) {
-                    Iterator<Ile> voisins = modele.getIlesVoisines(ile).iterator();
-                    while (voisins.hasNext()) {
-                        Ile neighbor = voisins.next();
-                        if (neighbor.getNoOfPontsMissing() > 0) {
-                            if (isNextMove(ile, neighbor)) {
-                                modele.ajouterPontEntre(ile, neighbor);
-                                stateChecker.setPuzzleState();
-                                NO_OF_TRIALS--;
-                                return true;
-                            }
-                        }
-                    }
-                }
+    private boolean makeMoveOfSolution() {
+        EtatGrille etat = modele.getEtat();
+        if (!leadsToSolution(etat)) {
+            solution = cache.chercher(etat, getForme(etat.getGraphe()));
+            if (solution == null) {
+                solution = new SolveurParallele(MAX_NO_OF_NODES, MAX_SOLVING_TIME).resoudre(etat);
+                if (solution == null)
+                    return false;
+                cache.ajouter(solution, getForme(etat.getGraphe()));
+            }
+        }
+        GrapheCandidats graphe = etat.getGraphe();
+        for (int arete = 0; arete < graphe.getNbAretes(); arete++) {
+            if (etat.getMultiplicite(arete) < solution.getMultiplicite(arete)) {
+                modele.ajouterPontEntre(modele.getIle(graphe.getStart(arete)), modele.getIle(graphe.getEnd(arete)));
+                stateChecker.setPuzzleState();
+                return true;
             }
         }
-        NO_OF_TRIALS--;
         return false;
     }
 
-    private boolean isNextMove(Ile ile, Ile neighbor) {
-        List<Pont> unsurePonts = new ArrayList<>();
-        addUnsurePontAndResetPuzzleState(ile, neighbor, unsurePonts);
-        while (makeSureMove()) 
-            unsurePonts.add(modele.getDernierPontAjouter());
-        boolean isNextMove = modele.estResolu();
-        removePontsFromModel(unsurePonts);
-        return isNextMove;
+    // canonical form of the graphe, computed again only when the iles changed
+    private CacheSolutions.Forme getForme(GrapheCandidats graphe) {
+        if (graphe != grapheForme) {
+            forme = new CacheSolutions.Forme(graphe);
+            grapheForme = graphe;
+        }
+        return forme;
     }
 
-    private void removePontsFromModel(List<Pont> unsurePonts) {
-        Iterator<Pont> unsurePontsIterator = unsurePonts.iterator();
-        while (unsurePontsIterator.hasNext()) 
-            modele.supprimerPont(unsurePontsIterator.next(), false);
+    private boolean leadsToSolution(EtatGrille etat) {
+        if (solution == null || solution.getGraphe() != etat.getGraphe())
+            return false;
+        for (int arete = 0; arete < etat.getGraphe().getNbAretes(); arete++) {
+            if (etat.getMultiplicite(arete) > solution.getMultiplicite(arete))
+                return false;
+        }
+        return true;
     }
 
-    private void addUnsurePontAndResetPuzzleState(Ile ile, Ile neighbor, List<Pont> unsurePonts) {
-        modele.ajouterPontEntre(ile, neighbor);
-        stateChecker.setPuzzleState();
-        unsurePonts.add(modele.getDernierPontAjouter());
+    /**
+     * Gets the cache of the solutions found by the handlers, shared by all of
+     * them.
+     */
+    public static CacheSolutions getCache() {
+        return cache;
     }
 
     /**
-     * Goes through all iles of <code>modele</code> iteratively trying to
-     * find a pont that must be added to an ile (and its neighbor ile).
-     * 
-     * @return true if sure move could be made, otherwise false.
+     * Gets the rules used, in the order in which they are applied to an ile.
      */
-    private boolean makeSureMoveByUsingRules() {
-        boolean sureMoveWasMade = false;
-        Iterator<Ile> ileIter = modele.getIles().iterator();
-        while (ileIter.hasNext() && !sureMoveWasMade) 
-            sureMoveWasMade = addSurePontToIle(ileIter.next());
-        return sureMoveWasMade;
+    public List<Regle> getRegles() {
+        return planificateur.getRegles();
     }
 
     /**
-     * @param ile
-     *            to be checked if (sure) pont can be added.
-     * @return true if pont was added, otherwise false.
+     * Gets the number of ponts found by the <code>regle</code> since
+     * <code>this</code> instance was constructed.
+     * 
+     * @param regle
+     *            one of the rules used
+     * @return number of ponts found by the rule
+     * @throws IllegalArgumentException
+     *             if the rule is not used by this instance
      */
-    private boolean addSurePontToIle(Ile ile) {
-        if (ile.getNoOfPontsMissing() != 0) {
-            initListsOfNeighbors(ile);
-            Ile neighbor = getNeighborToWhichPontMustBeBuilt(ile);
-            if (neighbor != null) {
-                modele.ajouterPontEntre(ile, neighbor);
-                stateChecker.setPuzzleState();
-                return true;
-            }
-        }
-        return false;
+    public long getNbApplications(Regle regle) throws IllegalArgumentException {
+        return noOfApplications[indexOf(regle)];
     }
 
     /**
-     * Initialize lists of neighbor iles of <code>ile</code> that are needed
-     * in algorithms to determine if a sure pont can be built from
-     * <code>ile</code>.
+     * Gets the time spent applying the <code>regle</code> since
+     * <code>this</code> instance was constructed, whether it found ponts or
+     * not.
      * 
-     * @param ile
+     * @param regle
+     *            one of the rules used
+     * @return time spent by the rule in nanoseconds
+     * @throws IllegalArgumentException
+     *             if the rule is not used by this instance
      */
-    private void initListsOfNeighbors(Ile ile) {
-        neighbors = new ArrayList<>();
-        neighborsToBuildPont = new ArrayList<>();
-        neighborsToBuildDoublePont = new ArrayList<>();
-        neighborsRequiringMoreThanOnePont = new ArrayList<>();
-        neighborsRequiringMoreThanTwoPonts = new ArrayList<>();
-        addNeighborsToLists(ile);
+    public long getDuree(Regle regle) throws IllegalArgumentException {
+        return durees[indexOf(regle)];
+    }
+
+    private int indexOf(Regle regle) {
+        int index = planificateur.getRegles().indexOf(regle);
+        if (index < 0)
+            throw new IllegalArgumentException("La règle n'est pas utilisée.");
+        return index;
     }
 
     /**
-     * Initialize lists of neighbor iles of <code>ile</code> that are needed
-     * in algorithms to determine if a sure pont can be built from
-     * <code>ile</code>.
      * 
-     * @param ile
+     * Adds every pont that must certainly be built according to the rules, one
+     * after the other, until the rules find no pont any more. Unlike
+     * {@link #makeSureMove()}, the state of the puzzle is only set once all
+     * ponts are added and the solver is not used.
+     * 
+     * @return moves made, in the order in which they were made, empty if the
+     *         puzzle is invalid, unsolvable or already solved
      */
-    private void addNeighborsToLists(Ile ile) {
-        for (Direction direction : Direction.values()) {
-            Ile neighbor = modele.getIleVoisine(ile, direction);
-            if (neighbor != null) {
-                neighbors.add(neighbor);
-                int noOfBuildablePonts = getNoOfBuildablePonts(ile, neighbor);
-                if (noOfBuildablePonts > 0) {
-                    neighborsToBuildPont.add(neighbor);
-                    if (noOfBuildablePonts > 1) 
-                        neighborsToBuildDoublePont.add(neighbor);
-                    if (neighbor.getNoOfPontsRequired() > 1) 
-                        neighborsRequiringMoreThanOnePont.add(neighbor);
-                    if (neighbor.getNoOfPontsRequired() > 2) 
-                        neighborsRequiringMoreThanTwoPonts.add(neighbor);
-                }
-            }
+    public List<Mouvement> solveByRules() {
+        List<Mouvement> mouvements = new ArrayList<>();
+        if (modele.nonResolu()) {
+            Mouvement mouvement;
+            while ((mouvement = makeMoveByUsingRules()) != null)
+                mouvements.add(mouvement);
+            stateChecker.setPuzzleState();
         }
+        return mouvements;
     }
 
-    private int getNoOfBuildablePonts(Ile ile, Ile neighbor) {
-        Pont pontToNeighbor = modele.getPontEntre(ile, neighbor);
-        if (pontToNeighbor == null && neighbor.getNoOfPontsMissing() > 1)
-            return 2;
-        if ((pontToNeighbor != null && !pontToNeighbor.isDouble() || pontToNeighbor == null) && neighbor.getNoOfPontsMissing() > 0)
-            return 1;
-        return 0;
+    private boolean makeSureMoveByUsingRules() {
+        if (makeMoveByUsingRules() == null)
+            return false;
+        stateChecker.setPuzzleState();
+        return true;
     }
 
     /**
-     * Checks if there is a neighbor of <code>ile</code> to which a pont must
-     * be built from <code>ile</code> by using rules described in assignment.
-     * <strong>Important:</strong> Returns null if no such neighbor can be found.
+     * Goes through the iles of <code>modele</code> queued trying to find a
+     * pont that must be added to an ile (and its neighbor ile). An ile is
+     * queued again only when its ponts, the ponts missing of its neighbors or
+     * its free lines to them change. The state of the puzzle is not set.
      * 
-     * @param ile
-     *            to be checked for a neighbor to which a pont must be built.
-     * @return neighbor (ile) to which pont must be built if existing,
-     *         otherwise null.
+     * @return move made, null if no sure move could be made
      */
-    private Ile getNeighborToWhichPontMustBeBuilt(Ile ile) {
-        int noOfBuildablePonts = neighborsToBuildPont.size() + neighborsToBuildDoublePont.size();
-        if (2 * neighbors.size() <= ile.getNoOfPontsRequired() || ile.getNoOfPontsMissing() == noOfBuildablePonts) 
-            return neighborsToBuildPont.get(0);
-        if ((2 * neighbors.size() - 1 <= ile.getNoOfPontsRequired() || ile.getNoOfPontsMissing() == noOfBuildablePonts - 1) && !neighborsToBuildDoublePont.isEmpty())
-            return neighborsToBuildDoublePont.get(0);
-        if (neighborsRequiringMoreThanOnePont.size() == 1 && (ile.getNoOfPontsRequired() == 1 || ile.getNoOfPontsRequired() == 2 && ile.getNoOfPontsMissing() == 2)) 
-            return neighborsRequiringMoreThanOnePont.get(0);  
-        if (ile.getNoOfPontsRequired() == 2 && ile.getNoOfPontsMissing() == 2 && neighborsToBuildPont.size() == 2 && neighborsRequiringMoreThanTwoPonts.size() == 1) 
-            return neighborsRequiringMoreThanTwoPonts.get(0);
+    private Mouvement makeMoveByUsingRules() {
+        if (aExaminer.getGraphe() != modele.getGraphe()) // iles changed
+            toutExaminer();
+        while (!aExaminer.estVide()) {
+            Coup coup = planificateur.planifier(voisinage, etat, aExaminer.retirer(), noOfApplications, durees);
+            if (coup != null)
+                return faire(coup); // iles around pont queued again
+        }
         return null;
     }
 
+    private Mouvement faire(Coup coup) {
+        Ile start = modele.getIle(coup.getStart());
+        Ile end = modele.getIle(coup.getEnd());
+        modele.ajouterPontEntre(start, end);
+        return new Mouvement(coup.getMultiplicite() == 1 ? Mouvement.Type.AJOUT : Mouvement.Type.DOUBLEMENT, start, end, coup.getMultiplicite() == 2);
+    }
+
+    private void toutExaminer() {
+        aExaminer = new FileIles(modele.getGraphe());
+        etat = modele.getEtat();
+    }
+
+    private void pontModifie(Ile start, Ile end, int ancienneMultiplicite, int nouvelleMultiplicite) {
+        GrapheCandidats graphe = aExaminer.getGraphe();
+        if (graphe != modele.getGraphe()) { // iles changed
+            toutExaminer();
+            return;
+        }
+        int arete = graphe.getArete(start.getId(), start.getY() == end.getY() ? Direction.EST : Direction.SUD);
+        etat.setMultiplicite(arete, nouvelleMultiplicite);
+        aExaminer.pontModifie(arete);
+    }
+
 }
@@ -0,0 +1,106 @@
+package controller;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import controller.Solveur.Issue;
+import modele.EtatGrille;
+
+/**
+ *
+ * Result of a {@link Solveur#resoudre(EtatGrille, Planificateur, long, long)
+ * solve} within a budget: the solution found, how the solve ended and the
+ * work it took. Instances are immutable.
+ */
+public final class RapportResolution {
+
+    private final EtatGrille solution;
+    private final Issue issue;
+    private final long noOfNoeuds;
+    private final long noOfPropagations;
+    private final long noOfRetours;
+    private final int profondeurMax;
+    private final long duree; // in nanoseconds
+    private final Map<Regle, Long> applications;
+
+    RapportResolution(EtatGrille solution, Issue issue, long noOfNoeuds, long noOfPropagations, long noOfRetours, int profondeurMax, long duree,
+            List<Regle> regles, long[] noOfApplications) {
+        this.solution = solution;
+        this.issue = issue;
+        this.noOfNoeuds = noOfNoeuds;
+        this.noOfPropagations = noOfPropagations;
+        this.noOfRetours = noOfRetours;
+        this.profondeurMax = profondeurMax;
+        this.duree = duree;
+        Map<Regle, Long> applications = new LinkedHashMap<>();
+        for (int i = 0; i < regles.size(); i++)
+            applications.put(regles.get(i), noOfApplications[i]);
+        this.applications = Collections.unmodifiableMap(applications);
+    }
+
+    /**
+     * Gets the solution found, null if there is none or if the solve stopped
+     * before finding one.
+     */
+    public EtatGrille getSolution() {
+        return solution;
+    }
+
+    public Issue getIssue() {
+        return issue;
+    }
+
+    /**
+     * Gets the number of nodes of the search tree visited.
+     */
+    public long getNbNoeuds() {
+        return noOfNoeuds;
+    }
+
+    /**
+     * Gets the number of domains of aretes restricted by the solve: by the
+     * ponts the rules built before the search, then by the choices and the
+     * propagation of the search.
+     */
+    public long getNbPropagations() {
+        return noOfPropagations;
+    }
+
+    /**
+     * Gets the number of choices of the search whose propagation led to a
+     * dead end.
+     */
+    public long getNbRetours() {
+        return noOfRetours;
+    }
+
+    /**
+     * Gets the largest number of choices made at once by the search.
+     */
+    public int getProfondeurMax() {
+        return profondeurMax;
+    }
+
+    /**
+     * Gets the wall time of the solve in nanoseconds.
+     */
+    public long getDuree() {
+        return duree;
+    }
+
+    /**
+     * Gets the number of ponts found by every rule before the search, in the
+     * order in which the rules were applied.
+     */
+    public Map<Regle, Long> getApplications() {
+        return applications;
+    }
+
+    @Override
+    public String toString() {
+        return issue + " noeuds " + noOfNoeuds + " propagations " + noOfPropagations + " retours " + noOfRetours + " profondeur " + profondeurMax
+                + " duree " + duree / 1_000_000 + " ms " + applications;
+    }
+}
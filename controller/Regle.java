@@ -0,0 +1,29 @@
+package controller;
+
+/**
+ *
+ * Deduction rule finding a pont that must certainly be built from an ile,
+ * based on the current state of the puzzle. The rules used by a
+ * {@link Planificateur} are given to its constructor; the rules of the
+ * application are those of {@link Regles}.
+ *
+ * <p>
+ * A rule only reads the state of the puzzle and keeps no state of its own, so
+ * that it can be applied by several threads at once.
+ * </p>
+ */
+@FunctionalInterface
+public interface Regle {
+
+    /**
+     * Searches a pont that must certainly be built, looking at the ile of
+     * <code>voisinage</code> and at its neighbors. The pont found usually
+     * starts from the ile of <code>voisinage</code>, but not necessarily.
+     *
+     * @param voisinage
+     *            ile examined and its neighbors
+     * @return id of the arete on which one more pont must be built, -1 if the
+     *         rule finds no pont to be built
+     */
+    int appliquer(Voisinage voisinage);
+}
@@ -0,0 +1,193 @@
+package controller;
+
+import modele.Position.Direction;
+import modele.EtatGrille;
+import modele.GrapheCandidats;
+
+/**
+ *
+ * Deduction rules of the application, applied in the order of their
+ * declaration by a {@link Planificateur} constructed without rules. The first
+ * four are the rules described in the assignment, the others use the fact that
+ * all iles of a solution are connected. All rules but {@link #SEULE_SORTIE}
+ * only find ponts starting from the ile examined, if it misses ponts.
+ */
+public enum Regles implements Regle {
+
+    /**
+     * The ile misses as many ponts as can still be built to its neighbors, or
+     * it requires two ponts to every neighbor.
+     */
+    TOUS_LES_PONTS {
+        @Override
+        public int appliquer(Voisinage voisinage) {
+            if (voisinage.getNoOfPontsMissing() <= 0)
+                return -1;
+            if (2 * voisinage.getNbVoisines() <= voisinage.getNoOfPontsRequired() || voisinage.getNoOfPontsMissing() == voisinage.getNbPontsConstructibles())
+                return premiereArete(voisinage, 1);
+            return -1;
+        }
+    },
+
+    /**
+     * The ile misses one pont less than can still be built to its neighbors,
+     * so that at least one pont is built to every neighbor to which a double
+     * pont can be built.
+     */
+    PONTS_DOUBLES {
+        @Override
+        public int appliquer(Voisinage voisinage) {
+            if (voisinage.getNoOfPontsMissing() <= 0)
+                return -1;
+            if (2 * voisinage.getNbVoisines() - 1 <= voisinage.getNoOfPontsRequired() || voisinage.getNoOfPontsMissing() == voisinage.getNbPontsConstructibles() - 1)
+                return premiereArete(voisinage, 2);
+            return -1;
+        }
+    },
+
+    /**
+     * An ile requiring one pont, or two ponts none of which is built, has a
+     * single neighbor requiring more than one pont.
+     */
+    SEULE_VOISINE_A_PLUSIEURS_PONTS {
+        @Override
+        public int appliquer(Voisinage voisinage) {
+            if (voisinage.getNoOfPontsMissing() <= 0)
+                return -1;
+            if (voisinage.getNoOfPontsRequired() == 1 || voisinage.getNoOfPontsRequired() == 2 && voisinage.getNoOfPontsMissing() == 2)
+                return seuleArete(voisinage, 1);
+            return -1;
+        }
+    },
+
+    /**
+     * An ile requiring two ponts, none of which is built, has two neighbors
+     * one of which requires more than two ponts.
+     */
+    SEULE_VOISINE_A_TROIS_PONTS {
+        @Override
+        public int appliquer(Voisinage voisinage) {
+            if (voisinage.getNoOfPontsRequired() != 2 || voisinage.getNoOfPontsMissing() != 2)
+                return -1;
+            int noOfVoisines = 0;
+            for (Direction direction : DIRECTIONS) {
+                if (voisinage.getNoOfPontsConstructibles(direction) > 0)
+                    noOfVoisines++;
+            }
+            return noOfVoisines == 2 ? seuleArete(voisinage, 2) : -1;
+        }
+    },
+
+    /**
+     * The ponts that can still be built to the neighbors without isolating two
+     * iles from the others are fewer than the ponts the ile misses once those
+     * to one neighbor are left out: an ile requiring one pont is never
+     * connected to another one and two iles requiring two ponts are never
+     * connected by a double pont, unless the puzzle only has these two iles.
+     */
+    ISOLEMENT {
+        @Override
+        public int appliquer(Voisinage voisinage) {
+            if (voisinage.getNoOfPontsMissing() <= 0 || voisinage.getGraphe().getNbIles() <= 2)
+                return -1;
+            int[] capacites = voisinage.getCapacites();
+            int somme = 0;
+            for (Direction direction : DIRECTIONS) {
+                capacites[direction.ordinal()] = getNoOfPontsSansIsolement(voisinage, direction);
+                somme += capacites[direction.ordinal()];
+            }
+            for (Direction direction : DIRECTIONS) {
+                int capacite = capacites[direction.ordinal()];
+                if (capacite > 0 && voisinage.getNoOfPontsMissing() > somme - capacite)
+                    return voisinage.getArete(direction);
+            }
+            return -1;
+        }
+    },
+
+    /**
+     * The iles connected to the ile by ponts can only be connected to the
+     * other iles by a single pont that can still be built. Components of more
+     * than {@value #MAX_ILES_COMPOSANTE} iles are not visited, as they hardly
+     * ever have a single way out and visiting them for every ile examined
+     * would take most of the time spent on large puzzles.
+     */
+    SEULE_SORTIE {
+        @Override
+        public int appliquer(Voisinage voisinage) {
+            EtatGrille etat = voisinage.getEtat();
+            GrapheCandidats graphe = etat.getGraphe();
+            // iles of the component, the marked ones, in the order they are visited
+            voisinage.commencerVisite();
+            int[] composante = voisinage.getIles();
+            int noOfMembres = 0;
+            voisinage.marquer(voisinage.getIle());
+            composante[noOfMembres++] = voisinage.getIle();
+            for (int visitees = 0; visitees < noOfMembres; visitees++) {
+                int courante = composante[visitees];
+                for (Direction direction : DIRECTIONS) {
+                    int arete = graphe.getArete(courante, direction);
+                    if (arete >= 0 && etat.getMultiplicite(arete) > 0 && voisinage.marquer(graphe.getAutreExtremite(arete, courante))) {
+                        if (noOfMembres == MAX_ILES_COMPOSANTE)
+                            return -1;
+                        composante[noOfMembres++] = graphe.getAutreExtremite(arete, courante);
+                    }
+                }
+            }
+            int sortie = -1;
+            for (int i = 0; i < noOfMembres; i++) {
+                int membre = composante[i];
+                if (etat.getNoOfPontsMissing(membre) <= 0)
+                    continue;
+                for (Direction direction : DIRECTIONS) {
+                    int neighbor = etat.getIleVoisine(membre, direction);
+                    if (neighbor >= 0 && etat.getNoOfPontsMissing(neighbor) > 0 && !voisinage.estMarquee(neighbor)) {
+                        if (sortie >= 0)
+                            return -1; // more than one way out
+                        sortie = graphe.getArete(membre, direction);
+                    }
+                }
+            }
+            return sortie;
+        }
+    };
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int MAX_ILES_COMPOSANTE = 64; // iles of largest component visited by SEULE_SORTIE
+
+    // arete to first neighbor to which at least noOfPonts ponts can still be built, -1 if none
+    private static int premiereArete(Voisinage voisinage, int noOfPonts) {
+        for (Direction direction : DIRECTIONS) {
+            if (voisinage.getNoOfPontsConstructibles(direction) >= noOfPonts)
+                return voisinage.getArete(direction);
+        }
+        return -1;
+    }
+
+    // arete to the neighbor requiring more than noOfPonts ponts if it is the only one a pont can still be built to, -1 otherwise
+    private static int seuleArete(Voisinage voisinage, int noOfPonts) {
+        int seule = -1;
+        for (Direction direction : DIRECTIONS) {
+            if (voisinage.getNoOfPontsConstructibles(direction) > 0 && voisinage.getGraphe().getNoOfPontsRequired(voisinage.getVoisine(direction)) > noOfPonts) {
+                if (seule >= 0)
+                    return -1;
+                seule = voisinage.getArete(direction);
+            }
+        }
+        return seule;
+    }
+
+    // ponts that can still be added to neighbor in direction without closing a component of the two iles
+    private static int getNoOfPontsSansIsolement(Voisinage voisinage, Direction direction) {
+        int noOfBuildablePonts = voisinage.getNoOfPontsConstructibles(direction);
+        if (noOfBuildablePonts == 0)
+            return 0;
+        int requis = voisinage.getNoOfPontsRequired();
+        int requisVoisine = voisinage.getGraphe().getNoOfPontsRequired(voisinage.getVoisine(direction));
+        if (requis == 1 && requisVoisine == 1)
+            return 0;
+        if (requis == 2 && requisVoisine == 2)
+            return Math.min(noOfBuildablePonts, voisinage.getEtat().getMultiplicite(voisinage.getArete(direction)) == 0 ? 1 : 0);
+        return noOfBuildablePonts;
+    }
+}
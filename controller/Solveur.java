@@ -0,0 +1,495 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import modele.EtatGrille;
+import modele.GrapheCandidats;
+import modele.Position.Direction;
+
+/**
+ *
+ * Complete solver of Hashiwokakero puzzles. Starting from the ponts of an
+ * {@link EtatGrille state}, which are kept, it searches depth first for the
+ * number of ponts of every arete. After every choice, the domains of the
+ * aretes are restricted by propagation (see {@link Domaines#propager()}) and
+ * a choice leading to a dead end is rolled back on the trail of the domains,
+ * so that the puzzle is never copied or changed during the search. A search
+ * for one solution jumps back over the choices a dead end does not follow
+ * from and restarts from time to time, so that an early choice making a
+ * remote part of a large puzzle unsolvable is undone without searching every
+ * choice made after it.
+ *
+ * <p>
+ * The search stops when a solution is found, when it is proven that there is
+ * none, when the budget of nodes or time is spent or when the thread running
+ * it is interrupted. The interrupted status of the thread is kept.
+ * </p>
+ */
+public final class Solveur {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final long NOEUDS_PAR_ESSAI = 30; // before the first restart, times the Luby sequence for the next ones
+
+    private final long limiteNoeuds;
+    private final long limiteTemps; // in milliseconds
+    private Issue issue;
+    private long noOfNoeuds;
+    private int noOfSolutions;
+    private long noOfRetours; // choices leading to a dead end
+    private long noOfRedemarrages;
+    private int profondeurMax;
+    private final List<EtatGrille> solutions = new ArrayList<>(); // found by last count
+
+    /**
+     * Constructs a solver without budget.
+     */
+    public Solveur() {
+        this(Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a solver.
+     *
+     * @param limiteNoeuds
+     *            maximum number of nodes of the search tree visited by a search
+     * @param limiteTemps
+     *            maximum duration of a search in milliseconds
+     */
+    public Solveur(long limiteNoeuds, long limiteTemps) {
+        this.limiteNoeuds = limiteNoeuds;
+        this.limiteTemps = limiteTemps;
+    }
+
+    /**
+     * Searches a solution of the puzzle whose ponts are those of
+     * <code>etat</code>. The ponts of <code>etat</code> are kept, i.e. there
+     * are at least as many ponts on every arete of the solution.
+     *
+     * @param etat
+     *            ponts from which the puzzle is solved, not changed
+     * @return solution, null if there is none or if the search stopped before
+     *         finding one, see {@link #getIssue()}
+     */
+    public EtatGrille resoudre(EtatGrille etat) {
+        noOfNoeuds = noOfRetours = noOfRedemarrages = profondeurMax = 0;
+        Domaines domaines = domainesInitiaux(etat);
+        if (domaines == null)
+            return terminer(Issue.SANS_SOLUTION, null);
+        return chercher(etat, domaines, finRecherche(limiteTemps), new AtomicBoolean());
+    }
+
+    /**
+     * Counts the solutions of the puzzle whose ponts are those of
+     * <code>etat</code>, keeping them, but stops as soon as
+     * <code>limite</code> solutions are found. The search goes on after a
+     * solution by rolling back its last choice, as after a dead end. Unless
+     * the search {@link #getIssue() ended}
+     * {@link Issue#RESOLU RESOLU} or {@link Issue#SANS_SOLUTION SANS_SOLUTION},
+     * the count is only a lower bound.
+     *
+     * @param etat
+     *            ponts from which the puzzle is solved, not changed
+     * @param limite
+     *            number of solutions after which the search stops
+     * @return number of solutions found, at most <code>limite</code>
+     * @throws IllegalArgumentException
+     *             if <code>limite</code> is less than 1
+     */
+    public int compterSolutions(EtatGrille etat, int limite) throws IllegalArgumentException {
+        if (limite < 1)
+            throw new IllegalArgumentException("La limite doit être au moins 1.");
+        noOfNoeuds = noOfRetours = noOfRedemarrages = profondeurMax = 0;
+        noOfSolutions = 0;
+        solutions.clear();
+        Domaines domaines = domainesInitiaux(etat);
+        if (domaines == null) {
+            terminer(Issue.SANS_SOLUTION, null);
+            return 0;
+        }
+        parcourir(etat, domaines, finRecherche(limiteTemps), new AtomicBoolean(), limite);
+        return noOfSolutions;
+    }
+
+    /**
+     * Gets the solutions found by the last
+     * {@link #compterSolutions(EtatGrille, int) count}, in the order in which
+     * they were found.
+     */
+    public List<EtatGrille> getSolutions() {
+        return Collections.unmodifiableList(solutions);
+    }
+
+    /**
+     * Solves the puzzle whose ponts are those of <code>etat</code>, keeping
+     * them, within a budget, and reports the work done. The ponts the rules of
+     * the <code>planificateur</code> find are built first, then the solution
+     * is searched as by {@link #resoudre(EtatGrille)}. The search stops at the
+     * <code>echeance</code>, after <code>limiteNoeuds</code> nodes or when the
+     * thread running it is interrupted, whose interrupted status is kept.
+     *
+     * @param etat
+     *            ponts from which the puzzle is solved, not changed
+     * @param planificateur
+     *            finding the ponts that must certainly be built
+     * @param echeance
+     *            value of {@link System#nanoTime()} after which the search
+     *            stops, Long.MAX_VALUE if it never does
+     * @param limiteNoeuds
+     *            maximum number of nodes of the search tree visited
+     * @return solution, how the search ended and the work done
+     */
+    public static RapportResolution resoudre(EtatGrille etat, Planificateur planificateur, long echeance, long limiteNoeuds) {
+        long debut = System.nanoTime();
+        long[] noOfApplications = new long[planificateur.getRegles().size()];
+        Solveur solveur = new Solveur(limiteNoeuds, Long.MAX_VALUE);
+        EtatGrille deduit = etat.fork();
+        EtatGrille solution = null;
+        boolean deduits = deduire(deduit, planificateur, noOfApplications, echeance);
+        long noOfPropagations = 0; // a pont built by a rule restricts the domain of its arete
+        for (long noOfPonts : noOfApplications)
+            noOfPropagations += noOfPonts;
+        if (!deduits)
+            solveur.terminer(Thread.currentThread().isInterrupted() ? Issue.INTERROMPU : Issue.LIMITE_ATTEINTE, null);
+        else {
+            Domaines domaines = domainesInitiaux(deduit);
+            if (domaines == null)
+                solveur.terminer(Issue.SANS_SOLUTION, null);
+            else {
+                solution = solveur.chercher(deduit, domaines, echeance, new AtomicBoolean());
+                noOfPropagations += domaines.getNbRestrictions();
+            }
+        }
+        return new RapportResolution(solution, solveur.issue, solveur.noOfNoeuds, noOfPropagations, solveur.noOfRetours, solveur.profondeurMax,
+                System.nanoTime() - debut, planificateur.getRegles(), noOfApplications);
+    }
+
+    // builds on etat the ponts the rules find until they find none, false if stopped by interruption or echeance
+    private static boolean deduire(EtatGrille etat, Planificateur planificateur, long[] noOfApplications, long echeance) {
+        FileIles aExaminer = new FileIles(etat.getGraphe());
+        Voisinage voisinage = new Voisinage();
+        while (!aExaminer.estVide()) {
+            if (Thread.currentThread().isInterrupted() || estEchue(echeance))
+                return false;
+            Coup coup = planificateur.planifier(voisinage, etat, aExaminer.retirer(), noOfApplications, null);
+            if (coup != null) {
+                etat.setMultiplicite(coup.getArete(), coup.getMultiplicite());
+                aExaminer.pontModifie(coup.getArete());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the domains of the aretes keeping the ponts of <code>etat</code>,
+     * propagated.
+     *
+     * @return domains, null if they cannot lead to a solution
+     */
+    static Domaines domainesInitiaux(EtatGrille etat) {
+        GrapheCandidats graphe = etat.getGraphe();
+        Domaines domaines = new Domaines(graphe);
+        for (int arete = 0; arete < graphe.getNbAretes(); arete++) {
+            if (!domaines.restreindre(arete, etat.getMultiplicite(arete), 2))
+                return null;
+        }
+        return domaines.propager() ? domaines : null;
+    }
+
+    // value of System.nanoTime() after which a search started now must stop, Long.MAX_VALUE if never
+    static long finRecherche(long limiteTemps) {
+        return limiteTemps == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + limiteTemps * 1_000_000;
+    }
+
+    // true once System.nanoTime() is past the echeance, compared by difference as nanoTime() may overflow
+    static boolean estEchue(long echeance) {
+        return echeance != Long.MAX_VALUE && System.nanoTime() - echeance > 0;
+    }
+
+    /**
+     * Searches a solution from the propagated <code>domaines</code>, which are
+     * changed by the search.
+     *
+     * @param etat
+     *            state the domains were built from
+     * @param domaines
+     *            domains from which the search starts
+     * @param fin
+     *            value of {@link System#nanoTime()} after which the search
+     *            stops, Long.MAX_VALUE if it never does
+     * @param annule
+     *            stops the search, as an interruption would, when set
+     * @return solution, null if there is none or if the search stopped
+     */
+    EtatGrille chercher(EtatGrille etat, Domaines domaines, long fin, AtomicBoolean annule) {
+        noOfSolutions = 0;
+        solutions.clear();
+        return parcourir(etat, domaines, fin, annule, 1);
+    }
+
+    /**
+     * Searches until <code>limiteSolutions</code> solutions are found and
+     * returns the first one. When searching a single solution, the search
+     * backjumps and restarts: a choice leading to a dead end is explained by
+     * the earlier choices it follows from, and once every value of a choice
+     * led to a dead end, the search goes back to the latest of the choices
+     * explaining them instead of the previous choice. After a number of nodes
+     * growing with the {@link #luby(long) Luby sequence}, the search restarts
+     * from the first choice, breaking ties between aretes at random.
+     */
+    private EtatGrille parcourir(EtatGrille etat, Domaines domaines, long fin, AtomicBoolean annule, int limiteSolutions) {
+        // one frame by choice: arete, next value and highest value to try, mark of the domains before the choice and levels of the choices explaining its dead ends
+        int[] aretes = new int[16];
+        int[] valeurs = new int[16];
+        int[] maximums = new int[16];
+        int[] marques = new int[16];
+        long[][] causes = new long[16][];
+        int profondeur = 0;
+        boolean descendre = true;
+        boolean sauter = limiteSolutions == 1; // counting goes on after solutions, which no choice explains
+        long finEssai = sauter ? noOfNoeuds + NOEUDS_PAR_ESSAI : Long.MAX_VALUE;
+        SplittableRandom hasard = null; // for ties once restarted, seeded so that searches can be repeated
+        EtatGrille premiere = null;
+        while (true) {
+            if (descendre) {
+                if (Thread.currentThread().isInterrupted() || annule.get())
+                    return terminer(Issue.INTERROMPU, premiere);
+                if (++noOfNoeuds > limiteNoeuds || (noOfNoeuds & 0xFF) == 0 && estEchue(fin))
+                    return terminer(Issue.LIMITE_ATTEINTE, premiere);
+                if (noOfNoeuds >= finEssai && profondeur > 0) {
+                    domaines.revenirA(marques[0]);
+                    profondeur = 0;
+                    finEssai = noOfNoeuds + NOEUDS_PAR_ESSAI * luby(++noOfRedemarrages);
+                    if (hasard == null)
+                        hasard = new SplittableRandom(1);
+                }
+                int arete = choisirArete(domaines, aretes, profondeur, hasard);
+                if (arete < 0) {
+                    solutions.add(solution(etat, domaines));
+                    if (noOfSolutions++ == 0)
+                        premiere = solutions.get(0);
+                    if (noOfSolutions == limiteSolutions || profondeur == 0)
+                        return terminer(Issue.RESOLU, premiere);
+                    descendre = false; // next value of last choice
+                    continue;
+                }
+                if (profondeur == aretes.length) {
+                    aretes = Arrays.copyOf(aretes, 2 * profondeur);
+                    valeurs = Arrays.copyOf(valeurs, 2 * profondeur);
+                    maximums = Arrays.copyOf(maximums, 2 * profondeur);
+                    marques = Arrays.copyOf(marques, 2 * profondeur);
+                    causes = Arrays.copyOf(causes, 2 * profondeur);
+                }
+                aretes[profondeur] = arete;
+                valeurs[profondeur] = domaines.min(arete);
+                maximums[profondeur] = domaines.max(arete);
+                marques[profondeur] = domaines.marque();
+                if (sauter) {
+                    int noOfMots = profondeur / 64 + 1;
+                    if (causes[profondeur] == null || causes[profondeur].length < noOfMots)
+                        causes[profondeur] = new long[noOfMots];
+                    else Arrays.fill(causes[profondeur], 0);
+                }
+                profondeurMax = Math.max(profondeurMax, ++profondeur);
+            }
+            int haut = profondeur - 1;
+            if (valeurs[haut] > maximums[haut]) { // every value tried, back to the latest choice explaining why
+                int retour = sauter ? dernierNiveau(causes[haut]) : haut - 1;
+                if (retour < 0) {
+                    domaines.revenirA(marques[0]);
+                    return terminer(premiere != null ? Issue.RESOLU : Issue.SANS_SOLUTION, premiere);
+                }
+                if (sauter) {
+                    // the dead ends below the choice are also explained by the choices explaining those of haut
+                    for (int mot = 0; mot < causes[retour].length; mot++)
+                        causes[retour][mot] |= causes[haut][mot];
+                    causes[retour][retour / 64] &= ~(1L << retour);
+                }
+                profondeur = retour + 1;
+                descendre = false;
+                continue;
+            }
+            // fewest ponts first
+            int valeur = valeurs[haut]++;
+            domaines.revenirA(marques[haut]);
+            descendre = domaines.restreindre(aretes[haut], valeur, valeur) && domaines.propager();
+            if (!descendre) {
+                noOfRetours++;
+                if (sauter)
+                    expliquer(domaines, marques, haut, causes[haut]);
+            }
+        }
+    }
+
+    // adds to the levels of the causes the earlier choices explaining the dead end of the choice haut
+    private static void expliquer(Domaines domaines, int[] marques, int haut, long[] causes) {
+        int noOfChoix = domaines.expliquerEchec(marques[0]);
+        int[] choix = domaines.getChoixEnCause();
+        for (int i = 0; i < noOfChoix; i++) {
+            // a choice is the first restriction after the mark of its level
+            int niveau = Arrays.binarySearch(marques, 0, haut + 1, choix[i]);
+            if (niveau >= 0 && niveau < haut)
+                causes[niveau / 64] |= 1L << niveau;
+        }
+    }
+
+    // highest level of the causes, -1 if none
+    private static int dernierNiveau(long[] causes) {
+        for (int mot = causes.length - 1; mot >= 0; mot--) {
+            if (causes[mot] != 0)
+                return mot * 64 + 63 - Long.numberOfLeadingZeros(causes[mot]);
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the <code>i</code>th term, from 0, of the Luby sequence 1, 1, 2,
+     * 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8..., the restart schedule which is
+     * within a logarithmic factor of the best one for any distribution of
+     * search lengths.
+     */
+    static long luby(long i) {
+        long taille = 1; // of the smallest complete prefix 1, 1, 2... 2^k containing i
+        int puissance = 0;
+        while (taille < i + 1) {
+            puissance++;
+            taille = 2 * taille + 1;
+        }
+        while (taille - 1 != i) {
+            taille = (taille - 1) / 2;
+            puissance--;
+            i %= taille;
+        }
+        return 1L << puissance;
+    }
+
+    /**
+     * Chooses the arete of the next choice among those of the iles of the
+     * latest choice, or of the choice before if they are all fixed, and so on,
+     * so that a dead end shows close to the choices it follows from; then
+     * among all aretes.
+     *
+     * @param hasard
+     *            breaks ties between aretes when choosing among all of them,
+     *            the first one is chosen if null
+     * @return arete, -1 if all are fixed
+     */
+    static int choisirArete(Domaines domaines, int[] choix, int profondeur, SplittableRandom hasard) {
+        GrapheCandidats graphe = domaines.getGraphe();
+        for (int niveau = profondeur - 1; niveau >= 0; niveau--) {
+            int choisie = -1;
+            int meilleurNoOfValeurs = Integer.MAX_VALUE;
+            int meilleureMarge = Integer.MAX_VALUE;
+            for (int bout = 0; bout < 2; bout++) {
+                int ile = bout == 0 ? graphe.getStart(choix[niveau]) : graphe.getEnd(choix[niveau]);
+                for (Direction direction : DIRECTIONS) {
+                    int arete = graphe.getArete(ile, direction);
+                    if (arete < 0 || domaines.estFixe(arete))
+                        continue;
+                    int noOfValeurs = domaines.max(arete) - domaines.min(arete) + 1;
+                    int marge = Math.min(domaines.marge(graphe.getStart(arete)), domaines.marge(graphe.getEnd(arete)));
+                    if (noOfValeurs < meilleurNoOfValeurs || noOfValeurs == meilleurNoOfValeurs && marge < meilleureMarge) {
+                        choisie = arete;
+                        meilleurNoOfValeurs = noOfValeurs;
+                        meilleureMarge = marge;
+                    }
+                }
+            }
+            if (choisie >= 0)
+                return choisie;
+        }
+        return choisirArete(domaines, hasard);
+    }
+
+    static int choisirArete(Domaines domaines) {
+        return choisirArete(domaines, null);
+    }
+
+    // arete with fewest possible values, among them the one whose iles have the least margin, chosen at random among ties if hasard is not null, -1 if all are fixed
+    private static int choisirArete(Domaines domaines, SplittableRandom hasard) {
+        GrapheCandidats graphe = domaines.getGraphe();
+        int choisie = -1;
+        int meilleurNoOfValeurs = Integer.MAX_VALUE;
+        int meilleureMarge = Integer.MAX_VALUE;
+        int noOfEgales = 0;
+        for (int mot = 0; mot < domaines.getNbMots(); mot++) {
+            for (long nonFixees = domaines.nonFixees(mot); nonFixees != 0; nonFixees &= nonFixees - 1) {
+                int arete = mot * Domaines.ARETES_PAR_MOT + Long.numberOfTrailingZeros(nonFixees) / 2;
+                int noOfValeurs = domaines.max(arete) - domaines.min(arete) + 1;
+                int marge = Math.min(domaines.marge(graphe.getStart(arete)), domaines.marge(graphe.getEnd(arete)));
+                if (noOfValeurs < meilleurNoOfValeurs || noOfValeurs == meilleurNoOfValeurs && marge < meilleureMarge) {
+                    choisie = arete;
+                    meilleurNoOfValeurs = noOfValeurs;
+                    meilleureMarge = marge;
+                    noOfEgales = 1;
+                } else if (hasard != null && noOfValeurs == meilleurNoOfValeurs && marge == meilleureMarge && hasard.nextInt(++noOfEgales) == 0)
+                    choisie = arete;
+            }
+        }
+        return choisie;
+    }
+
+    static EtatGrille solution(EtatGrille etat, Domaines domaines) {
+        EtatGrille solution = etat.fork();
+        for (int arete = 0; arete < etat.getGraphe().getNbAretes(); arete++)
+            solution.setMultiplicite(arete, domaines.min(arete));
+        return solution;
+    }
+
+    private EtatGrille terminer(Issue issue, EtatGrille solution) {
+        this.issue = issue;
+        return solution;
+    }
+
+    /**
+     * Gets how the last search ended.
+     */
+    public Issue getIssue() {
+        return issue;
+    }
+
+    /**
+     * Gets the number of nodes of the search tree visited by the last search.
+     */
+    public long getNbNoeuds() {
+        return noOfNoeuds;
+    }
+
+    /**
+     * Gets the number of choices of the last search whose propagation led to
+     * a dead end.
+     */
+    public long getNbRetours() {
+        return noOfRetours;
+    }
+
+    /**
+     * Gets the number of times the last search restarted from its first
+     * choice.
+     */
+    public long getNbRedemarrages() {
+        return noOfRedemarrages;
+    }
+
+    /**
+     * Gets the largest number of choices made at once by the last search.
+     */
+    public int getProfondeurMax() {
+        return profondeurMax;
+    }
+
+    public enum Issue {
+
+        RESOLU,
+
+        SANS_SOLUTION,
+
+        LIMITE_ATTEINTE,
+
+        INTERROMPU;
+    }
+}
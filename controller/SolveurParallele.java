@@ -0,0 +1,186 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import controller.Solveur.Issue;
+import modele.EtatGrille;
+
+/**
+ *
+ * Complete solver of Hashiwokakero puzzles searching the subtrees of the
+ * search tree in parallel in a {@link ForkJoinPool}. The first choices of the
+ * search each give one task by possible number of ponts, each task holding its
+ * own copy of the {@link Domaines domains}, until enough tasks are queued to
+ * keep the threads of the pool busy. Deeper subtrees are searched by a
+ * {@link Solveur} in the thread of their task. Idle threads steal the tasks
+ * not started yet.
+ *
+ * <p>
+ * All tasks share a cancel flag set when a solution is found, when the budget
+ * is spent or when the thread waiting for the search is interrupted. The
+ * search ends with the first solution found or when every task ended without
+ * solution, i.e. when it is proven that there is none. Searches of one
+ * instance must not run concurrently.
+ * </p>
+ */
+public final class SolveurParallele {
+
+    private static final int MAX_SURPLUS_TASKS = 2; // queued tasks above which a task stops splitting
+
+    private final ForkJoinPool pool;
+    private final long limiteNoeuds;
+    private final long limiteTemps; // in milliseconds
+    private Issue issue;
+    // state of current search
+    private EtatGrille etat;
+    private long fin;
+    private final AtomicBoolean annule = new AtomicBoolean();
+    private final AtomicLong noOfNoeuds = new AtomicLong();
+    private final AtomicReference<EtatGrille> solution = new AtomicReference<>();
+    private volatile boolean limiteAtteinte;
+
+    /**
+     * Constructs a solver running in the {@link ForkJoinPool#commonPool()
+     * common pool}.
+     *
+     * @param limiteNoeuds
+     *            maximum number of nodes of the search tree visited by a search
+     * @param limiteTemps
+     *            maximum duration of a search in milliseconds
+     */
+    public SolveurParallele(long limiteNoeuds, long limiteTemps) {
+        this(ForkJoinPool.commonPool(), limiteNoeuds, limiteTemps);
+    }
+
+    /**
+     * Constructs a solver running in the <code>pool</code>.
+     *
+     * @param pool
+     *            running the tasks of the searches
+     * @param limiteNoeuds
+     *            maximum number of nodes of the search tree visited by a search
+     * @param limiteTemps
+     *            maximum duration of a search in milliseconds
+     */
+    public SolveurParallele(ForkJoinPool pool, long limiteNoeuds, long limiteTemps) {
+        this.pool = pool;
+        this.limiteNoeuds = limiteNoeuds;
+        this.limiteTemps = limiteTemps;
+    }
+
+    /**
+     * Searches a solution of the puzzle whose ponts are those of
+     * <code>etat</code>, keeping them, see {@link Solveur#resoudre(EtatGrille)}.
+     *
+     * @param etat
+     *            ponts from which the puzzle is solved, not changed
+     * @return solution, null if there is none or if the search stopped before
+     *         finding one, see {@link #getIssue()}
+     */
+    public EtatGrille resoudre(EtatGrille etat) {
+        this.etat = etat;
+        this.fin = Solveur.finRecherche(limiteTemps);
+        annule.set(false);
+        noOfNoeuds.set(0);
+        solution.set(null);
+        limiteAtteinte = false;
+        Domaines domaines = Solveur.domainesInitiaux(etat);
+        if (domaines == null) {
+            issue = Issue.SANS_SOLUTION;
+            return null;
+        }
+        ForkJoinTask<EtatGrille> recherche = pool.submit(new Recherche(domaines));
+        try {
+            recherche.get();
+        } catch (InterruptedException e) {
+            annule.set(true);
+            recherche.join(); // tasks stop at their next node
+            Thread.currentThread().interrupt();
+            issue = solution.get() != null ? Issue.RESOLU : Issue.INTERROMPU;
+            return solution.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        issue = solution.get() != null ? Issue.RESOLU : limiteAtteinte ? Issue.LIMITE_ATTEINTE : Issue.SANS_SOLUTION;
+        return solution.get();
+    }
+
+    /**
+     * Gets how the last search ended.
+     */
+    public Issue getIssue() {
+        return issue;
+    }
+
+    /**
+     * Gets the number of nodes of the search tree visited by the last search.
+     */
+    public long getNbNoeuds() {
+        return noOfNoeuds.get();
+    }
+
+    private void trouver(EtatGrille solutionTrouvee) {
+        if (solution.compareAndSet(null, solutionTrouvee))
+            annule.set(true);
+    }
+
+    // search of the subtree of propagated domains
+    private final class Recherche extends RecursiveTask<EtatGrille> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Domaines domaines;
+
+        Recherche(Domaines domaines) {
+            this.domaines = domaines;
+        }
+
+        @Override
+        protected EtatGrille compute() {
+            if (annule.get())
+                return null;
+            if (noOfNoeuds.incrementAndGet() > limiteNoeuds || Solveur.estEchue(fin)) {
+                limiteAtteinte = true;
+                annule.set(true);
+                return null;
+            }
+            int arete = Solveur.choisirArete(domaines);
+            if (arete < 0) {
+                trouver(Solveur.solution(etat, domaines));
+                return solution.get();
+            }
+            if (getSurplusQueuedTaskCount() > MAX_SURPLUS_TASKS)
+                return chercherSansPartager();
+            List<Recherche> sousRecherches = new ArrayList<>();
+            for (int valeur = domaines.min(arete); valeur <= domaines.max(arete); valeur++) { // fewest ponts first, as Solveur
+                Domaines copie = new Domaines(domaines);
+                if (copie.restreindre(arete, valeur, valeur) && copie.propager())
+                    sousRecherches.add(new Recherche(copie));
+            }
+            invokeAll(sousRecherches);
+            return solution.get();
+        }
+
+        private EtatGrille chercherSansPartager() {
+            noOfNoeuds.decrementAndGet(); // counted again by solver
+            Solveur solveur = new Solveur(Math.max(0, limiteNoeuds - noOfNoeuds.get()), Long.MAX_VALUE);
+            EtatGrille solutionTrouvee = solveur.chercher(etat, domaines, fin, annule);
+            noOfNoeuds.addAndGet(solveur.getNbNoeuds());
+            if (solutionTrouvee != null)
+                trouver(solutionTrouvee);
+            else if (solveur.getIssue() == Issue.LIMITE_ATTEINTE) {
+                limiteAtteinte = true;
+                annule.set(true);
+            }
+            return solution.get();
+        }
+    }
+}
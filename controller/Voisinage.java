@@ -0,0 +1,188 @@
+package controller;
+
+import java.util.Arrays;
+
+import modele.Position.Direction;
+import modele.EtatGrille;
+import modele.GrapheCandidats;
+
+/**
+ *
+ * An ile of a {@link EtatGrille state} of a puzzle and its neighbors in every
+ * direction, the {@link Regle rules} look at. An instance is filled again for
+ * every ile examined; it only reads the state, which must not be changed
+ * while the rules look at it. It also holds the buffers the rules work in, so
+ * that examining an ile allocates nothing.
+ */
+public final class Voisinage {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private EtatGrille etat;
+    private int ile;
+    private final int[] voisines = new int[4]; // by ordinal of direction, -1 if none
+    private final int[] aretes = new int[4]; // to voisines
+    private final int[] constructibles = new int[4]; // ponts that can still be added to voisines
+    private int noOfVoisines;
+    private int noOfPontsConstructibles;
+    // buffers of the rules
+    private final int[] capacites = new int[4]; // by ordinal of direction
+    private int[] marques = new int[0]; // by ile id, visit in which the ile was marked
+    private int visite; // current visit
+    private int[] iles = new int[0]; // marked in the current visit, in the order they were marked
+
+    /**
+     * Fills this instance with the neighbors of <code>ile</code> in
+     * <code>etat</code>.
+     *
+     * @param etat
+     *            ponts of the puzzle
+     * @param ile
+     *            id of the ile to be examined
+     */
+    void initialiser(EtatGrille etat, int ile) {
+        this.etat = etat;
+        this.ile = ile;
+        noOfVoisines = noOfPontsConstructibles = 0;
+        for (Direction direction : DIRECTIONS) {
+            int i = direction.ordinal();
+            int neighbor = etat.getIleVoisine(ile, direction);
+            voisines[i] = neighbor;
+            aretes[i] = neighbor < 0 ? -1 : etat.getGraphe().getArete(ile, direction);
+            constructibles[i] = neighbor < 0 ? 0 : getNoOfBuildablePonts(aretes[i], neighbor);
+            if (neighbor >= 0)
+                noOfVoisines++;
+            noOfPontsConstructibles += constructibles[i];
+        }
+    }
+
+    private int getNoOfBuildablePonts(int arete, int neighbor) {
+        int multiplicite = etat.getMultiplicite(arete);
+        if (multiplicite == 0 && etat.getNoOfPontsMissing(neighbor) > 1)
+            return 2;
+        if (multiplicite < 2 && etat.getNoOfPontsMissing(neighbor) > 0)
+            return 1;
+        return 0;
+    }
+
+    public EtatGrille getEtat() {
+        return etat;
+    }
+
+    public GrapheCandidats getGraphe() {
+        return etat.getGraphe();
+    }
+
+    /**
+     * Gets the id of the ile examined.
+     */
+    public int getIle() {
+        return ile;
+    }
+
+    /**
+     * Gets the number of ponts required by the ile examined.
+     */
+    public int getNoOfPontsRequired() {
+        return etat.getGraphe().getNoOfPontsRequired(ile);
+    }
+
+    /**
+     * Gets the number of ponts the ile examined still misses.
+     */
+    public int getNoOfPontsMissing() {
+        return etat.getNoOfPontsMissing(ile);
+    }
+
+    /**
+     * Gets the neighbor of the ile in the <code>direction</code>, i.e. the
+     * ile visible from it.
+     *
+     * @return id of the neighbor, -1 if there is none
+     */
+    public int getVoisine(Direction direction) {
+        return voisines[direction.ordinal()];
+    }
+
+    /**
+     * Gets the arete between the ile and its neighbor in the
+     * <code>direction</code>.
+     *
+     * @return id of the arete, -1 if there is no neighbor
+     */
+    public int getArete(Direction direction) {
+        return aretes[direction.ordinal()];
+    }
+
+    /**
+     * Gets the number of ponts (0, 1 or 2) that can still be added between
+     * the ile and its neighbor in the <code>direction</code>, considering the
+     * ponts between them and the ponts the neighbor misses.
+     */
+    public int getNoOfPontsConstructibles(Direction direction) {
+        return constructibles[direction.ordinal()];
+    }
+
+    /**
+     * Gets the number of neighbors of the ile.
+     */
+    public int getNbVoisines() {
+        return noOfVoisines;
+    }
+
+    /**
+     * Gets the number of ponts that can still be added between the ile and
+     * all its neighbors.
+     */
+    public int getNbPontsConstructibles() {
+        return noOfPontsConstructibles;
+    }
+
+    /**
+     * Gets a buffer of one int by ordinal of direction, whose values are left
+     * by the previous rule.
+     */
+    int[] getCapacites() {
+        return capacites;
+    }
+
+    /**
+     * Starts a new visit of the iles of the state: no ile is marked anymore.
+     */
+    void commencerVisite() {
+        int noOfIles = etat.getGraphe().getNbIles();
+        if (marques.length < noOfIles) {
+            marques = new int[noOfIles];
+            iles = new int[noOfIles];
+            visite = 0;
+        }
+        if (++visite == 0) { // wrapped around, older marks could be taken for current ones
+            Arrays.fill(marques, 0);
+            visite = 1;
+        }
+    }
+
+    /**
+     * Marks the <code>ile</code> in the current visit.
+     *
+     * @return true if the ile was not marked yet in the current visit
+     */
+    boolean marquer(int ile) {
+        if (marques[ile] == visite)
+            return false;
+        marques[ile] = visite;
+        return true;
+    }
+
+    boolean estMarquee(int ile) {
+        return marques[ile] == visite;
+    }
+
+    /**
+     * Gets a buffer of one int by ile of the state, whose values are left by
+     * the previous rule, e.g. to hold the iles marked in the current visit.
+     */
+    int[] getIles() {
+        return iles;
+    }
+}
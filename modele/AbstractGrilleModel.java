@@ -0,0 +1,615 @@
+package modele;
+
+import controller.GrilleStatut;
+import modele.Position.Direction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ *
+ * This class contains the logic shared by all the models of a Hashiwokakero
+ * puzzle and its current state. Subclasses only decide how the field, i.e. the
+ * iles and ponts at each pair of coordinates, is stored.
+ */
+public abstract class AbstractGrilleModel implements GrilleInterface {
+    private final int width;
+    private final int height;
+    private int noOfIles;
+    private Ile[] ilesParId = new Ile[8]; // iles by id
+    private final List<Ile> iles = new ArrayList<>(); // iles ordered naturally
+    private final List<Ile> ilesView = Collections.unmodifiableList(iles);
+    private final List<EcouteurGrille> ecouteurs = new ArrayList<>(); // notified of changes of ponts
+
+    /**
+     *
+     * Index of the neighbor iles. <code>voisins[4 * id + d]</code> is the id of
+     * the ile first encountered when stepping from the ile with the id
+     * <code>id</code> into the direction with the ordinal <code>d</code>, ponts
+     * being ignored, or -1 if there is no such ile. The cells between both
+     * iles are the cells strictly between their coordinates. The index only
+     * depends on the layout of the iles and is updated when an ile is added.
+     *
+     */
+    private int[] voisins = new int[4 * 8];
+
+    // steps in x and y direction by ordinal of direction
+    private static final int[] DX = { 0, 1, 0, -1 };
+    private static final int[] DY = { -1, 0, 1, 0 };
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Occupation occupation; // cells occupied by iles and ponts
+    private GrapheCandidats graphe; // layout, null if iles changed since it was built
+    private long hashPonts; // exclusive or of Zobrist keys of all ponts
+
+    private GrilleStatut.Statut puzzleState = GrilleStatut.Statut.INITIAL;
+    final Journal journal = new Journal(); // moves made and order of insertion of ponts
+    private boolean enregistrement = true; // false while moves are not to be recorded
+
+    /**
+     *
+     * Constructs an empty <code>width x height</code> Hashiwokakeru puzzle.
+     *
+     * @param width
+     *            of the Hashiwokakeru puzzle
+     * @param height
+     *            of the Hashiwokakeru puzzle
+     */
+    protected AbstractGrilleModel(int width, int height) {
+        this(width, height, new OccupationBits(width, height));
+    }
+
+    AbstractGrilleModel(int width, int height, Occupation occupation) {
+        this.width = width;
+        this.height = height;
+        this.occupation = occupation;
+    }
+
+    /**
+     * Gets the field element at valid coordinates (x, y), <code>null</code> if
+     * there is neither an ile nor a pont.
+     */
+    abstract FieldElement elementAt(int x, int y);
+
+    /**
+     * Stores the <code>ile</code> at its coordinates.
+     */
+    abstract void placerIle(Ile ile);
+
+    /**
+     * Stores the <code>pont</code> on all the coordinates between its start and
+     * its end.
+     */
+    abstract void placerPont(Pont pont);
+
+    /**
+     * Removes the <code>pont</code> from all the coordinates between its start
+     * and its end.
+     */
+    abstract void enleverPont(Pont pont);
+
+    /**
+     * Adds the key of the <code>pont</code> with its current multiplicity to
+     * the hash of the ponts if it is not included, removes it otherwise.
+     */
+    final void inverserCle(Pont pont) {
+        hashPonts ^= Zobrist.cle(pont);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getNbIles() {
+        return noOfIles;
+    }
+
+    @Override
+    public GrilleStatut.Statut getStatut() {
+        return puzzleState;
+    }
+
+    @Override
+    public boolean estResolu() {
+        return puzzleState == GrilleStatut.Statut.RESOLU;
+    }
+
+    @Override
+    public boolean nonResolu() {
+        return puzzleState == GrilleStatut.Statut.INITIAL;
+    }
+
+    @Override
+    public boolean estImpossible() {
+        return puzzleState == GrilleStatut.Statut.NON_RESOLU;
+    }
+
+    @Override
+    public boolean estErrone() {
+        return puzzleState == GrilleStatut.Statut.ERRONE;
+    }
+
+    @Override
+    public void setStatut(GrilleStatut.Statut state) {
+        this.puzzleState = state;
+    }
+
+    @Override
+    public FieldElement getFieldElementAt(int x, int y) throws IllegalArgumentException {
+        if (!estValidePosition(x, y)) { // (x,y) on field
+            int maxX = getWidth() - 1;
+            int maxY = getHeight() - 1;
+            throw new IllegalArgumentException("(" + x + ", " + y + ") are not valid coordinates. x needs to be between 0 and " + maxX + ", y betweeen 0 and " + maxY + ".");
+        }
+        return elementAt(x, y);
+    }
+
+    @Override
+    public Ile getIleAt(int x, int y) throws IllegalArgumentException {
+        if (!ileAt(x, y)) throw new IllegalArgumentException("Il n'y a pas d'île au (" + x + ", " + y + ").");
+        return (Ile) elementAt(x, y);
+    }
+
+    @Override
+    public Pont getPontAt(int x, int y) throws IllegalArgumentException {
+        if (!pontAt(x, y)) throw new IllegalArgumentException("Il n'y a pas de pont à (" + x + ", " + y + ").");
+        return (Pont) elementAt(x, y);
+    }
+
+    @Override
+    public boolean ileAt(int x, int y) throws IllegalArgumentException {
+        return getFieldElementAt(x, y) instanceof Ile;
+    }
+
+    @Override
+    public boolean pontAt(int x, int y) throws IllegalArgumentException {
+        return getFieldElementAt(x, y) instanceof Pont;
+    }
+
+    @Override
+    public boolean estVide(int x, int y) throws IllegalArgumentException {
+        return getFieldElementAt(x, y) == null;
+    }
+
+    @Override
+    public boolean estValidePosition(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    @Override
+    public boolean estValIlePosition(int x, int y) {
+        return (estValidePosition(x, y) && !ileAt(x, y) && (!estValidePosition(x - 1, y) || !ileAt(x - 1, y)) && (!estValidePosition(x + 1, y) || !ileAt(x + 1, y)) && (!estValidePosition(x, y - 1) || !ileAt(x, y - 1)) && (!estValidePosition(x, y + 1) || !ileAt(x, y + 1)));
+    }
+
+    @Override
+    public void addIleAt(int x, int y) throws IllegalArgumentException {
+        ajouterIleAt(x, y, 0);
+    }
+
+    @Override
+    public void ajouterIleAt(int x, int y, int noOfPonts) throws IllegalArgumentException {
+        if (!estValidePosition(x, y)) {
+            int maxX = getWidth() - 1;
+            int maxY = getHeight() - 1;
+            throw new IllegalArgumentException("(" + x + ", " + y + ") ne sont pas des coordonnées valides. x doit être compris entre 0 et " + maxX + ". y doit être compris entre 0 et " + maxY + ".");
+        }
+        if (!estValIlePosition(x, y))
+            throw new IllegalArgumentException("Ile ne peut être ajouté au (" + x + ", " + y + ") car la distance entre îles devraient être supérieur à 1.");
+
+        if (pontAt(x, y))
+            throw new IllegalArgumentException("L'île ne peut être ajouté au (" + x + ", " + y + ") car il exite un point à cette coordonnées.");
+
+        Ile ile = new Ile(x, y, this);
+        ile.id = noOfIles;
+        ile.setNoOfPontsRequired(noOfPonts);
+        placerIle(ile);
+        occupation.ajouterIle(ile);
+        ajouterIleAuxVoisins(ile);
+        iles.add(-Collections.binarySearch(iles, ile) - 1, ile);
+        noOfIles++;
+        graphe = null;
+    }
+
+    @Override
+    public Ile getIle(int id) throws IllegalArgumentException {
+        if (id < 0 || id >= noOfIles)
+            throw new IllegalArgumentException("Il n'y a pas d'île d'identifiant " + id + ".");
+        return ilesParId[id];
+    }
+
+    /**
+     * Gets the ile with the id <code>id</code>.
+     */
+    Ile ileParId(int id) {
+        return ilesParId[id];
+    }
+
+    private void ajouterIleAuxVoisins(Ile ile) {
+        if (ile.id == ilesParId.length) {
+            ilesParId = Arrays.copyOf(ilesParId, 2 * ilesParId.length);
+            voisins = Arrays.copyOf(voisins, 4 * ilesParId.length);
+        }
+        ilesParId[ile.id] = ile;
+        for (Direction direction : DIRECTIONS) {
+            Ile neighbor = chercherIleProche(ile.getX(), ile.getY(), direction);
+            voisins[4 * ile.id + direction.ordinal()] = neighbor == null ? -1 : neighbor.id;
+            if (neighbor != null) // ile is now between neighbor and its former neighbor
+                voisins[4 * neighbor.id + (direction.ordinal() + 2) % 4] = ile.id;
+        }
+    }
+
+    /**
+     * Searches the ile first encountered when stepping from (x, y) into the
+     * <code>direction</code>, ponts being ignored.
+     * 
+     * @return ile found, otherwise null
+     */
+    private Ile chercherIleProche(int x, int y, Direction direction) {
+        int coord = occupation.ileProche(x, y, direction);
+        if (coord < 0)
+            return null;
+        return (Ile) (direction == Direction.NORD || direction == Direction.SUD ? elementAt(x, coord) : elementAt(coord, y));
+    }
+
+    @Override
+    public List<Ile> getIles() {
+        return ilesView;
+    }
+
+    @Override
+    public Ile getIleVoisine(Ile ile, Direction direction) throws IllegalArgumentException {
+        if (ile == null || direction == null)
+            throw new IllegalArgumentException("Ile et la direction ne devraient pas vide.");
+        int neighborId = voisins[4 * ile.id + direction.ordinal()];
+        if (neighborId < 0)
+            return null;
+        Ile neighbor = ilesParId[neighborId];
+        if (getPont(ile, direction) != null)
+            return neighbor; // pont leads to neighbor, no need to check for crossing ponts
+        return occupation.estLibreEntre(ile, neighbor) ? neighbor : null;
+    }
+
+    @Override
+    public List<Ile> getIlesVoisines(Ile ile) throws IllegalArgumentException {
+        List<Ile> neighbourIles = new ArrayList<>();
+        for (Direction direction : DIRECTIONS) {
+            Ile neighbor = getIleVoisine(ile, direction);
+            if (neighbor != null)
+                neighbourIles.add(neighbor);
+        }
+        return neighbourIles;
+    }
+
+    @Override
+    public int getNbCasesLibres(int x, int y, Direction direction) throws IllegalArgumentException {
+        if (!estValidePosition(x, y) || direction == null)
+            throw new IllegalArgumentException("(" + x + ", " + y + ") ne sont pas des coordonnées valides ou la direction est vide.");
+        return occupation.nbCasesLibres(x, y, direction);
+    }
+
+    @Override
+    public Pont getPont(Ile ile, Direction direction) throws IllegalArgumentException {
+        if (ile == null || direction == null) throw new IllegalArgumentException("Ile et la direction ne devraient pas vide.");
+        // check coords right next to ile in specified direction
+        int x = ile.getX() + DX[direction.ordinal()];
+        int y = ile.getY() + DY[direction.ordinal()];
+        if (estValidePosition(x, y) && elementAt(x, y) instanceof Pont) {
+            Pont pont = (Pont) elementAt(x, y);
+            // check that pont is not orthogonal to direction, i.e. does connect ile
+            if (ile.equals(pont.getStart()) || ile.equals(pont.getEnd())) return pont;
+        }
+        return null;
+    }
+
+    @Override
+    public Pont getPontEntre(Ile ile, Ile otherIle) throws IllegalArgumentException {
+            if (ile == null || otherIle == null)
+                    throw new IllegalArgumentException("L'un des îles est nulle.");
+            // check that iles are neighbors
+            Direction directionOfOtherIle = ile.getCoords().getDirectionOfCoord(otherIle.getCoords());
+            if (!otherIle.equals(getIleVoisine(ile, directionOfOtherIle)))
+                    throw new IllegalArgumentException("Les îles ne sont pas voisines les unes des autres.");
+            // get pont if existing
+            Position coordsBetweenIles = ile.getCoords().getNextCoordsIn(directionOfOtherIle);
+            return pontAt(coordsBetweenIles.x, coordsBetweenIles.y) ? (Pont) elementAt(coordsBetweenIles.x, coordsBetweenIles.y) : null;
+    }
+
+    @Override
+    public long getHashPonts() {
+        return hashPonts;
+    }
+
+    @Override
+    public Pont getDernierPontAjouter() {
+        return journal.getDernierPont();
+    }
+
+    @Override
+    public boolean ajouterPont(Ile ile, Direction direction) throws IllegalArgumentException {
+        Ile neighbor = getIleVoisine(ile, direction);
+        if (neighbor == null)
+                throw new IllegalArgumentException(
+                                "Il n'y pas de voisin à " + direction + " de " + ile + " pour y ajouter un pont.");
+        return ajouterPontEntre(ile, neighbor);
+    }
+
+    @Override
+    public boolean ajouterPontEntre(Ile ile, Ile otherIle) throws IllegalArgumentException {
+        Pont pont = getPontEntre(ile, otherIle);
+        if (pont == null)
+            return ajouterPontEntre(ile, otherIle, false);
+        else if (!pont.isDouble()) { // single pont already existing
+            pont.setDouble(true); // pont becomes pont last inserted
+            enregistrer(Mouvement.Type.DOUBLEMENT, pont);
+            return true;
+        } else return false;
+
+    }
+
+    @Override
+    public boolean ajouterPontEntre(Ile ile, Ile otherIle, boolean doublePont) throws IllegalArgumentException {
+        if (ile == null || otherIle == null)
+            throw new IllegalArgumentException("Les îles ne devraient pas nuls.");
+        // check if iles are neighbors
+        Direction directionOfOtherIle = ile.getCoords().getDirectionOfCoord(otherIle.getCoords());
+        if (!otherIle.equals(getIleVoisine(ile, directionOfOtherIle)))
+            throw new IllegalArgumentException("Aucun pont ne peut être ajouté entre " + ile + " et " + otherIle + " car il y a un ile ou un pont entre.");
+        // check if pont already exists
+        if (getPont(ile, directionOfOtherIle) != null)
+            throw new IllegalArgumentException("Un pont entre " + ile + " and " + otherIle + " existe déjà.");
+        // create pont
+        Pont pont = new Pont(ile, otherIle, doublePont, this);
+        placerPont(pont);
+        occupation.ajouterPont(pont);
+        ile.ajouterPonts(pont.getMultiplicite());
+        otherIle.ajouterPonts(pont.getMultiplicite());
+        inverserCle(pont);
+        pont.insertion = journal.inserer(pont); // pont becomes pont last inserted
+        enregistrer(Mouvement.Type.AJOUT, pont);
+        return true;
+    }
+
+    @Override
+    public void ajouterPontEntreIles(Ile existingIle, Ile newIle, boolean isDouble) throws IllegalArgumentException {
+        enregistrement = false; // puzzle is changed, this is not a move
+        try {
+            ajouterPontEntre(existingIle, newIle, isDouble);
+        } finally {
+            enregistrement = true;
+        }
+        int noOfPontsAdded = isDouble ? 2 : 1;
+        existingIle.setNoOfPontsRequired(existingIle.getNoOfPontsRequired() + noOfPontsAdded);
+        newIle.setNoOfPontsRequired(newIle.getNoOfPontsRequired() + noOfPontsAdded);
+        graphe = null;
+    }
+
+    @Override
+    public boolean supprimerPont(Ile ile, Direction direction) throws IllegalArgumentException {
+        Ile otherIle = getIleVoisine(ile, direction);
+        return supprimerPontEntre(ile, otherIle);
+    }
+
+    @Override
+    public boolean supprimerPontEntre(Ile ile, Ile otherIle) {
+        return supprimerPontEntre(ile, otherIle, false);
+    }
+
+    @Override
+    public boolean supprimerPontEntre(Ile ile, Ile otherIle, boolean doublePont) {
+        Pont pont = getPontEntre(ile, otherIle);
+        // check if pont exists and what kind of pont it is
+        if (pont != null) {
+            if (pont.isDouble() && !doublePont) {
+                pont.setDouble(false); // only a single pont of a double pont is to be removed
+                enregistrer(Mouvement.Type.DEDOUBLEMENT, pont);
+            } else { // remove whole pont from field
+                enleverPont(pont);
+                occupation.retirerPont(pont);
+                ile.ajouterPonts(-pont.getMultiplicite());
+                otherIle.ajouterPonts(-pont.getMultiplicite());
+                inverserCle(pont);
+                journal.retirer(pont.insertion);
+                if (pont.insertionDouble != null)
+                    journal.retirer(pont.insertionDouble);
+                enregistrer(Mouvement.Type.SUPPRESSION, pont);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supprimerPont(Pont pont, boolean doublePont) throws IllegalArgumentException {
+        return supprimerPontEntre(pont.getStart(), pont.getEnd(), doublePont);
+    }
+
+    @Override
+    public boolean supprimerPontEntreIles(Pont oldPont, boolean doublePont) throws IllegalArgumentException {
+        int noOfPontsRemoved = oldPont.isDouble() && doublePont ? 2 : 1;
+        boolean pontWasRemoved;
+        enregistrement = false; // puzzle is changed, this is not a move
+        try {
+            pontWasRemoved = supprimerPont(oldPont, doublePont);
+        } finally {
+            enregistrement = true;
+        }
+        if (pontWasRemoved) {
+            Ile start = oldPont.getStart();
+            Ile end = oldPont.getEnd();
+            start.setNoOfPontsRequired(start.getNoOfPontsRequired() - noOfPontsRemoved);
+            end.setNoOfPontsRequired(end.getNoOfPontsRequired() - noOfPontsRemoved);
+            graphe = null;
+        }
+        return pontWasRemoved;
+    }
+
+    // built again only if iles were added or the number of ponts they require changed
+    @Override
+    public GrapheCandidats getGraphe() {
+        if (graphe == null) {
+            int[] x = new int[noOfIles];
+            int[] y = new int[noOfIles];
+            int[] requis = new int[noOfIles];
+            for (int id = 0; id < noOfIles; id++) {
+                x[id] = ilesParId[id].getX();
+                y[id] = ilesParId[id].getY();
+                requis[id] = ilesParId[id].getNoOfPontsRequired();
+            }
+            graphe = new GrapheCandidats(getWidth(), getHeight(), x, y, requis, voisins);
+        }
+        return graphe;
+    }
+
+    @Override
+    public int getMultiplicite(int arete) throws IllegalArgumentException {
+        GrapheCandidats graphe = getGraphe();
+        if (arete < 0 || arete >= graphe.getNbAretes())
+            throw new IllegalArgumentException("L'arête " + arete + " n'existe pas.");
+        // pont is east or south of start of arete
+        Pont pont = getPont(ilesParId[graphe.getStart(arete)], graphe.isVertical(arete) ? Direction.SUD : Direction.EST);
+        return pont == null ? 0 : pont.getMultiplicite();
+    }
+
+    @Override
+    public EtatGrille getEtat() {
+        GrapheCandidats graphe = getGraphe();
+        byte[] multiplicites = new byte[graphe.getNbAretes()];
+        for (int arete = 0; arete < multiplicites.length; arete++)
+            multiplicites[arete] = (byte) getMultiplicite(arete);
+        return new EtatGrille(graphe, multiplicites);
+    }
+
+    @Override
+    public void supprimerPonts() {
+        enregistrement = false;
+        for (Ile ile : iles) { // every pont is east or south of one of its ends
+            supprimerPontSansEnregistrement(ile, Direction.EST);
+            supprimerPontSansEnregistrement(ile, Direction.SUD);
+        }
+        enregistrement = true;
+        journal.vider();
+    }
+
+    private void supprimerPontSansEnregistrement(Ile ile, Direction direction) {
+        Pont pont = getPont(ile, direction);
+        if (pont != null)
+            supprimerPontEntre(pont.getStart(), pont.getEnd(), true);
+    }
+
+    // records move unless puzzle is changed without moves, listeners are notified in any case
+    private void enregistrer(Mouvement.Type type, Pont pont) {
+        if (enregistrement)
+            journal.enregistrer(new Mouvement(type, pont.getStart(), pont.getEnd(), pont.isDouble()));
+        if (!ecouteurs.isEmpty()) {
+            int ancienneMultiplicite, nouvelleMultiplicite;
+            switch (type) {
+            case AJOUT:
+                ancienneMultiplicite = 0;
+                nouvelleMultiplicite = pont.getMultiplicite();
+                break;
+            case SUPPRESSION:
+                ancienneMultiplicite = pont.getMultiplicite();
+                nouvelleMultiplicite = 0;
+                break;
+            case DOUBLEMENT:
+                ancienneMultiplicite = 1;
+                nouvelleMultiplicite = 2;
+                break;
+            default:
+                ancienneMultiplicite = 2;
+                nouvelleMultiplicite = 1;
+            }
+            for (EcouteurGrille ecouteur : ecouteurs)
+                ecouteur.pontModifie(pont.getStart(), pont.getEnd(), ancienneMultiplicite, nouvelleMultiplicite);
+        }
+    }
+
+    @Override
+    public void ajouterEcouteur(EcouteurGrille ecouteur) {
+        ecouteurs.add(ecouteur);
+    }
+
+    @Override
+    public void retirerEcouteur(EcouteurGrille ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+
+    @Override
+    public boolean annulerMouvement() {
+        Mouvement mouvement = journal.annuler();
+        if (mouvement != null)
+            faireSansEnregistrement(mouvement.inverse());
+        return mouvement != null;
+    }
+
+    @Override
+    public boolean retablirMouvement() {
+        Mouvement mouvement = journal.retablir();
+        if (mouvement != null)
+            faireSansEnregistrement(mouvement);
+        return mouvement != null;
+    }
+
+    private void faireSansEnregistrement(Mouvement mouvement) {
+        enregistrement = false;
+        try {
+            switch (mouvement.getType()) {
+            case AJOUT:
+                ajouterPontEntre(mouvement.getStart(), mouvement.getEnd(), mouvement.isDouble());
+                break;
+            case SUPPRESSION:
+                supprimerPontEntre(mouvement.getStart(), mouvement.getEnd(), true);
+                break;
+            case DOUBLEMENT:
+                ajouterPontEntre(mouvement.getStart(), mouvement.getEnd());
+                break;
+            case DEDOUBLEMENT:
+                supprimerPontEntre(mouvement.getStart(), mouvement.getEnd(), false);
+            }
+        } finally {
+            enregistrement = true;
+        }
+    }
+
+    /**
+     * Returns a <code>String</code> representing the puzzle.
+     */
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int y = 0; y < getHeight(); y++) {
+            for (int x = 0; x < getWidth(); x++) {
+                FieldElement element = elementAt(x, y);
+                if (element == null)
+                    stringBuilder.append("*");
+                else if (element instanceof Ile) {
+                    Ile ile = (Ile) element;
+                    stringBuilder.append(ile.getNoOfPontsRequired());
+                } else { // pont at (x, y)
+                    Pont pont = (Pont) element;
+                    // check kind of pont
+                    if (pont.isVertical()) {
+                        if (pont.isDouble()) stringBuilder.append("||");
+                        else stringBuilder.append("|");
+                    } else {
+                        if (pont.isDouble()) stringBuilder.append("=");
+                        else stringBuilder.append("-");
+                    }
+                }
+                stringBuilder.append("\t"); // new row
+            }
+            stringBuilder.append("\n");
+        }
+        return stringBuilder.toString();
+    }
+
+}
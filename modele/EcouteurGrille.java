@@ -0,0 +1,26 @@
+package modele;
+
+/**
+ *
+ * Listener notified by a {@link GrilleInterface puzzle} whenever the number
+ * of ponts between two of its iles changes, whether by a move, by undoing or
+ * redoing a move or by removing all ponts.
+ */
+@FunctionalInterface
+public interface EcouteurGrille {
+
+    /**
+     * Called after the number of ponts between <code>start</code> and
+     * <code>end</code> changed.
+     *
+     * @param start
+     *            ile north or west of the other ile
+     * @param end
+     *            ile south or east of the other ile
+     * @param ancienneMultiplicite
+     *            number of ponts (0, 1 or 2) before the change
+     * @param nouvelleMultiplicite
+     *            number of ponts (0, 1 or 2) after the change
+     */
+    void pontModifie(Ile start, Ile end, int ancienneMultiplicite, int nouvelleMultiplicite);
+}
@@ -0,0 +1,144 @@
+package modele;
+
+import modele.Position.Direction;
+
+/**
+ *
+ * State of the ponts of a Hashiwokakero puzzle on a shared
+ * {@link GrapheCandidats layout}, i.e. the number of ponts (0, 1 or 2) built
+ * on each arete.
+ *
+ * <p>
+ * A state is not linked to the model it was taken from, changing one of them
+ * does not change the other. {@link #fork() Forking} a state is O(1): the
+ * fork shares the arrays of the state and whichever of both is changed first
+ * copies them (copy-on-write). Thus, threads can explore alternative ponts
+ * from a common state without locks, each on its own fork, as long as a
+ * state is only forked and changed by the thread owning it.
+ * </p>
+ */
+public final class EtatGrille {
+
+    private final GrapheCandidats graphe;
+    private byte[] multiplicites; // ponts by arete
+    private int[] ponts; // ponts by ile
+    private long hash; // same hash as the ponts of a model, see GrilleInterface.getHashPonts
+    private boolean partage; // true if arrays may be referenced by another state
+
+    EtatGrille(GrapheCandidats graphe, byte[] multiplicites) {
+        this.graphe = graphe;
+        this.multiplicites = multiplicites;
+        this.ponts = new int[graphe.getNbIles()];
+        for (int arete = 0; arete < multiplicites.length; arete++) {
+            ponts[graphe.getStart(arete)] += multiplicites[arete];
+            ponts[graphe.getEnd(arete)] += multiplicites[arete];
+            hash ^= cle(arete, multiplicites[arete]);
+        }
+    }
+
+    private EtatGrille(EtatGrille etat) {
+        this.graphe = etat.graphe;
+        this.multiplicites = etat.multiplicites;
+        this.ponts = etat.ponts;
+        this.hash = etat.hash;
+        this.partage = true;
+    }
+
+    /**
+     * Gets a fork of this state that shares its arrays until one of both is
+     * changed.
+     *
+     * @return fork of this state
+     */
+    public EtatGrille fork() {
+        partage = true;
+        return new EtatGrille(this);
+    }
+
+    public GrapheCandidats getGraphe() {
+        return graphe;
+    }
+
+    /**
+     * Gets the number of ponts (0, 1 or 2) built on the <code>arete</code>.
+     */
+    public int getMultiplicite(int arete) {
+        return multiplicites[arete];
+    }
+
+    /**
+     * Gets a 64-bit hash of the ponts of this state, equal to the
+     * {@link GrilleInterface#getHashPonts() hash} of a model with the same
+     * ponts. It is updated in O(1) when a multiplicity changes.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    private long cle(int arete, int multiplicite) {
+        if (multiplicite == 0)
+            return 0;
+        int start = graphe.getStart(arete);
+        return Zobrist.cle(graphe.getX(start), graphe.getY(start), graphe.isVertical(arete), multiplicite);
+    }
+
+    /**
+     * Gets the number of ponts the <code>ile</code> still misses, negative if
+     * it has too many ponts.
+     */
+    public int getNoOfPontsMissing(int ile) {
+        return graphe.getNoOfPontsRequired(ile) - ponts[ile];
+    }
+
+    /**
+     * Returns true if a pont is built on one of the aretes crossing the
+     * <code>arete</code>.
+     */
+    public boolean estCroise(int arete) {
+        for (int i = 0; i < graphe.getNbCroisements(arete); i++) {
+            if (multiplicites[graphe.getCroisement(arete, i)] > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the neighbor of the <code>ile</code> in the <code>direction</code>
+     * to which a pont can be built or is built, i.e. which is not hidden by a
+     * crossing pont.
+     *
+     * @return neighbor ile, -1 if there is none
+     */
+    public int getIleVoisine(int ile, Direction direction) {
+        int arete = graphe.getArete(ile, direction);
+        if (arete < 0 || multiplicites[arete] == 0 && estCroise(arete))
+            return -1;
+        return graphe.getAutreExtremite(arete, ile);
+    }
+
+    /**
+     * Sets the number of ponts built on the <code>arete</code>. Crossings are
+     * not checked.
+     *
+     * @param arete
+     *            on which ponts are built
+     * @param multiplicite
+     *            0, 1 or 2
+     * @throws IllegalArgumentException
+     *             if multiplicite is not 0, 1 or 2
+     */
+    public void setMultiplicite(int arete, int multiplicite) throws IllegalArgumentException {
+        if (multiplicite < 0 || multiplicite > 2)
+            throw new IllegalArgumentException("Il ne peut y avoir que 0, 1 ou 2 ponts entre deux îles.");
+        if (partage) { // copy on write
+            multiplicites = multiplicites.clone();
+            ponts = ponts.clone();
+            partage = false;
+        }
+        int difference = multiplicite - multiplicites[arete];
+        hash ^= cle(arete, multiplicites[arete]) ^ cle(arete, multiplicite);
+        multiplicites[arete] = (byte) multiplicite;
+        ponts[graphe.getStart(arete)] += difference;
+        ponts[graphe.getEnd(arete)] += difference;
+    }
+}
@@ -0,0 +1,204 @@
+package modele;
+
+import java.util.Arrays;
+
+import modele.Position.Direction;
+
+/**
+ *
+ * Layout of a Hashiwokakero puzzle, i.e. its iles and the ponts that could be
+ * built between them, independent of the ponts currently on the field. Iles
+ * are identified by their {@link Ile#getId() id}. A candidate pont, called
+ * arete, links two neighbor iles, i.e. iles in the same row or column without
+ * any ile between them, and is identified by an id in [0,
+ * {@link #getNbAretes()}). Aretes are numbered in the order of the ids of
+ * their starts, so ids only depend on the iles. The aretes crossing an arete
+ * are stored in compressed sparse rows, i.e. in one array for all aretes.
+ *
+ * <p>
+ * Instances are immutable, so they can be shared by any number of
+ * {@link EtatGrille states} and threads.
+ * </p>
+ */
+public final class GrapheCandidats {
+
+    private final int width;
+    private final int height;
+    private final int[] x; // by ile id
+    private final int[] y; // by ile id
+    private final int[] requis; // ponts required by ile id
+    private final int[] aretesParDirection; // 4 * ile + ordinal of direction -> arete or -1
+    private final int[] extremites; // start of arete at 2 * arete, end at 2 * arete + 1
+    private final int[] debutCroisements; // aretes crossing arete stored in croisements from debutCroisements[arete]
+    private final int[] croisements; // to debutCroisements[arete + 1] excluded
+
+    GrapheCandidats(int width, int height, int[] x, int[] y, int[] requis, int[] voisins) {
+        this.width = width;
+        this.height = height;
+        this.x = x;
+        this.y = y;
+        this.requis = requis;
+        this.aretesParDirection = new int[4 * x.length];
+        Arrays.fill(aretesParDirection, -1);
+        int[] extremites = new int[4 * x.length];
+        int noOfAretes = 0;
+        for (int ile = 0; ile < x.length; ile++) {
+            for (Direction direction : new Direction[] { Direction.EST, Direction.SUD }) {
+                int neighbor = voisins[4 * ile + direction.ordinal()];
+                if (neighbor >= 0) { // ile is start, neighbor end of arete
+                    extremites[2 * noOfAretes] = ile;
+                    extremites[2 * noOfAretes + 1] = neighbor;
+                    aretesParDirection[4 * ile + direction.ordinal()] = noOfAretes;
+                    aretesParDirection[4 * neighbor + (direction.ordinal() + 2) % 4] = noOfAretes;
+                    noOfAretes++;
+                }
+            }
+        }
+        this.extremites = Arrays.copyOf(extremites, 2 * noOfAretes);
+        // crossings stored in compressed sparse rows, each pair being stored for both of its aretes
+        int[] paires = calculerCroisements(noOfAretes);
+        this.debutCroisements = new int[noOfAretes + 1];
+        this.croisements = new int[paires.length];
+        for (int paire = 0; paire < paires.length; paire++)
+            debutCroisements[paires[paire] + 1]++;
+        for (int arete = 0; arete < noOfAretes; arete++)
+            debutCroisements[arete + 1] += debutCroisements[arete];
+        int[] remplis = Arrays.copyOf(debutCroisements, noOfAretes);
+        for (int paire = 0; paire < paires.length; paire += 2) {
+            croisements[remplis[paires[paire]]++] = paires[paire + 1];
+            croisements[remplis[paires[paire + 1]]++] = paires[paire];
+        }
+    }
+
+    // pairs of aretes crossing each other, found for each vertical arete among the horizontal aretes of the rows it spans
+    private int[] calculerCroisements(int noOfAretes) {
+        Integer[] horizontales = new Integer[noOfAretes];
+        int noOfHorizontales = 0;
+        for (int arete = 0; arete < noOfAretes; arete++) {
+            if (!isVertical(arete))
+                horizontales[noOfHorizontales++] = arete;
+        }
+        Arrays.sort(horizontales, 0, noOfHorizontales, (arete, autre) -> Long.compare(cle(arete), cle(autre)));
+        long[] cles = new long[noOfHorizontales];
+        for (int i = 0; i < noOfHorizontales; i++)
+            cles[i] = cle(horizontales[i]);
+        // pairs of crossing aretes, vertical at 2 * i, horizontal at 2 * i + 1
+        int[] paires = new int[16];
+        int noOfPaires = 0;
+        for (int verticale = 0; verticale < noOfAretes; verticale++) {
+            if (!isVertical(verticale))
+                continue;
+            int xVerticale = x[getStart(verticale)];
+            int yEnd = y[getEnd(verticale)];
+            int i = premiere(cles, 0, cle(0, y[getStart(verticale)] + 1));
+            while (i < noOfHorizontales && (int) (cles[i] >>> 32) < yEnd) {
+                int row = (int) (cles[i] >>> 32);
+                // horizontal aretes of a row do not overlap, only the last one starting before the vertical one can cross it
+                int suivante = premiere(cles, i, cle(xVerticale, row));
+                if (suivante > i && x[getEnd(horizontales[suivante - 1])] > xVerticale) {
+                    if (2 * noOfPaires == paires.length)
+                        paires = Arrays.copyOf(paires, 2 * paires.length);
+                    paires[2 * noOfPaires] = verticale;
+                    paires[2 * noOfPaires + 1] = horizontales[suivante - 1];
+                    noOfPaires++;
+                }
+                i = premiere(cles, suivante, cle(0, row + 1));
+            }
+        }
+        return Arrays.copyOf(paires, 2 * noOfPaires);
+    }
+
+    // sort key of horizontal arete, by row then by column of its start
+    private long cle(int arete) {
+        return cle(x[getStart(arete)], y[getStart(arete)]);
+    }
+
+    private static long cle(int x, int y) {
+        return (long) y << 32 | x;
+    }
+
+    // first index >= from of cles whose key is >= cle
+    private static int premiere(long[] cles, int from, long cle) {
+        int to = cles.length;
+        while (from < to) {
+            int milieu = (from + to) >>> 1;
+            if (cles[milieu] < cle)
+                from = milieu + 1;
+            else to = milieu;
+        }
+        return from;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNbIles() {
+        return x.length;
+    }
+
+    public int getNbAretes() {
+        return extremites.length / 2;
+    }
+
+    public int getX(int ile) {
+        return x[ile];
+    }
+
+    public int getY(int ile) {
+        return y[ile];
+    }
+
+    public int getNoOfPontsRequired(int ile) {
+        return requis[ile];
+    }
+
+    /**
+     * Gets the arete of the <code>ile</code> in the <code>direction</code>.
+     *
+     * @return arete, -1 if there is no neighbor ile in the direction
+     */
+    public int getArete(int ile, Direction direction) {
+        return aretesParDirection[4 * ile + direction.ordinal()];
+    }
+
+    /**
+     * Gets the ile north or west of the other end of the <code>arete</code>.
+     */
+    public int getStart(int arete) {
+        return extremites[2 * arete];
+    }
+
+    /**
+     * Gets the ile south or east of the other end of the <code>arete</code>.
+     */
+    public int getEnd(int arete) {
+        return extremites[2 * arete + 1];
+    }
+
+    public int getAutreExtremite(int arete, int ile) {
+        return ile == getStart(arete) ? getEnd(arete) : getStart(arete);
+    }
+
+    public boolean isVertical(int arete) {
+        return x[getStart(arete)] == x[getEnd(arete)];
+    }
+
+    /**
+     * Gets the number of aretes crossing the <code>arete</code>.
+     */
+    public int getNbCroisements(int arete) {
+        return debutCroisements[arete + 1] - debutCroisements[arete];
+    }
+
+    /**
+     * Gets the <code>i</code>th arete crossing the <code>arete</code>.
+     */
+    public int getCroisement(int arete, int i) {
+        return croisements[debutCroisements[arete] + i];
+    }
+}
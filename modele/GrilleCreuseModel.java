@@ -0,0 +1,51 @@
+package modele;
+
+
+/**
+ *
+ * This class models a Hashiwokakero puzzle and its current state by storing
+ * only its iles and ponts, looked up by their coordinates. Unlike
+ * {@link GrilleModel}, no memory is allocated per cell of the field, so the
+ * memory used depends on the number of iles rather than on the size of the
+ * field. Looking up a cell is O(log n) instead of O(1).
+ */
+public class GrilleCreuseModel extends AbstractGrilleModel {
+
+    private final OccupationCreuse occupation; // holds iles and ponts
+
+    /**
+     *
+     * Constructs an instance of an empty <code>width x height</code> Hashiwokakeru
+     * puzzle, i.e. a Hashiwokakeru puzzle with <code>width</code> columns and
+     * <code>height</code> rows without any iles or ponts. Iles must be
+     * added after construction.
+     *
+     * @param width
+     *            of the Hashiwokakeru puzzle
+     * @param height
+     *            of the Hashiwokakeru puzzle
+     */
+    public GrilleCreuseModel(int width, int height) {
+        this(width, height, new OccupationCreuse(width, height));
+    }
+
+    private GrilleCreuseModel(int width, int height, OccupationCreuse occupation) {
+        super(width, height, occupation);
+        this.occupation = occupation;
+    }
+
+    @Override
+    FieldElement elementAt(int x, int y) {
+        return occupation.elementAt(x, y);
+    }
+
+    @Override
+    void placerIle(Ile ile) {} // stored by occupation
+
+    @Override
+    void placerPont(Pont pont) {} // stored by occupation
+
+    @Override
+    void enleverPont(Pont pont) {} // removed by occupation
+
+}
@@ -249,15 +249,33 @@ public interface GrilleInterface {
 
 	/**
 	 * 
-	 * Gets an instance a <code>List&lt=Ile> containing all the iles of
-	 * the puzzle (at the point in time the method is used) ordered naturally, i.e.
-	 * by column first and row second. If there are no iles, the list is going to
-	 * be empty.
+	 * Gets an unmodifiable <code>List&lt=Ile> containing all the iles of
+	 * the puzzle ordered naturally, i.e. by column first and row second. If
+	 * there are no iles, the list is going to be empty.
+	 * 
+	 * <p>
+	 * <strong>Important:</strong> The list is a view of the iles of the puzzle,
+	 * i.e. iles added to the puzzle later on are going to appear in the list.
+	 * </p>
 	 * 
 	 * @return a list of all the iles of the puzzle
 	 */
 	List<Ile> getIles();
 
+	/**
+	 * 
+	 * Gets the ile with the id <code>id</code>, i.e. the ile that was added to
+	 * the puzzle after <code>id</code> other iles.
+	 * 
+	 * @param id
+	 *            of the ile, greater than or equal to 0 and less than the
+	 *            number of iles
+	 * @return ile with the id
+	 * @throws IllegalArgumentException
+	 *             if there is no ile with the id
+	 */
+	Ile getIle(int id) throws IllegalArgumentException;
+
         /**
          * 
          * Gets the neighbor ile of <code>ile</code> in the <code>direction</code>
@@ -291,6 +309,25 @@ public interface GrilleInterface {
          */
         Ile getIleVoisine(Ile ile, Position.Direction direction) throws IllegalArgumentException;
 
+        /**
+         * 
+         * Gets the number of empty cells, i.e. cells with neither an ile nor a
+         * pont, encountered when stepping from (x, y) into the
+         * <code>direction</code> given before reaching a cell that is not
+         * empty or the border of the field.
+         * 
+         * @param x
+         *            coordinate
+         * @param y
+         *            coordinate
+         * @param direction
+         *            in which to step
+         * @return number of empty cells next to (x, y) in the direction
+         * @throws IllegalArgumentException
+         *             if (x, y) are not valid coordinates or direction is null
+         */
+        int getNbCasesLibres(int x, int y, Position.Direction direction) throws IllegalArgumentException;
+
         /**
          * 
          * Gets a <code>List&lt=Ile></code> the neighbor iles of the
@@ -361,6 +398,17 @@ public interface GrilleInterface {
 	 */
 	Pont getPontEntre(Ile ile, Ile otherIle) throws IllegalArgumentException;
 
+	/**
+	 * 
+	 * Gets a 64-bit hash of the ponts currently on the field. Two puzzles with
+	 * the same ponts, i.e. ponts of the same multiplicity starting at the same
+	 * coordinates in the same direction, have the same hash, whatever the
+	 * moves that led to them. The hash is updated in O(1) by every move.
+	 * 
+	 * @return hash of the ponts
+	 */
+	long getHashPonts();
+
 	/**
 	 * 
 	 * Gets the pont last inserted into the puzzle. <strong>Important:</strong>
@@ -539,8 +587,87 @@ public interface GrilleInterface {
 	boolean supprimerPontEntreIles(Pont oldPont, boolean doublePont) throws IllegalArgumentException;
 
 	/**
-	 * Removes all ponts from the puzzle.
+	 * 
+	 * Adds a listener notified whenever the number of ponts between two iles
+	 * changes.
+	 * 
+	 * @param ecouteur
+	 *            listener to be notified
+	 */
+	void ajouterEcouteur(EcouteurGrille ecouteur);
+
+	/**
+	 * 
+	 * Removes a listener added by {@link #ajouterEcouteur(EcouteurGrille)}.
+	 * 
+	 * @param ecouteur
+	 *            listener not to be notified any more
+	 */
+	void retirerEcouteur(EcouteurGrille ecouteur);
+
+	/**
+	 * 
+	 * Gets the layout of the puzzle, i.e. its iles and the aretes on which
+	 * ponts could be built between them, with the aretes crossing each other.
+	 * The same layout, with the same ids of iles and aretes, is returned as
+	 * long as no ile is added and the number of ponts iles require does not
+	 * change.
+	 * 
+	 * @return layout of the puzzle
+	 */
+	GrapheCandidats getGraphe();
+
+	/**
+	 * 
+	 * Gets the number of ponts (0, 1 or 2) currently built on the
+	 * <code>arete</code> of the {@link #getGraphe() layout}.
+	 * 
+	 * @param arete
+	 *            id of the arete
+	 * @return number of ponts on the arete
+	 * @throws IllegalArgumentException
+	 *             if there is no such arete
+	 */
+	int getMultiplicite(int arete) throws IllegalArgumentException;
+
+	/**
+	 * 
+	 * Gets a snapshot of the ponts of the puzzle. The snapshot shares the
+	 * layout of the puzzle, i.e. its iles and the aretes between them, with
+	 * all other snapshots taken as long as no ile is added and the number of
+	 * ponts iles require does not change. Changing the snapshot or its
+	 * {@link EtatGrille#fork() forks} does not change the puzzle and vice versa.
+	 * 
+	 * @return state of the ponts of the puzzle
+	 */
+	EtatGrille getEtat();
+
+	/**
+	 * Removes all ponts from the puzzle. Moves made before can no longer be
+	 * undone.
 	 */
 	void supprimerPonts();
 
+	/**
+	 * 
+	 * Undoes the last move, i.e. the last pont added or removed by one of the
+	 * <code>ajouterPont</code> or <code>supprimerPont</code> methods, that has
+	 * not been undone yet. Changes made while generating the puzzle (see
+	 * {@link #ajouterPontEntreIles(Ile, Ile, boolean) ajouterPontEntreIles}
+	 * and {@link #supprimerPontEntreIles(Pont, boolean) supprimerPontEntreIles}
+	 * methods) are not moves.
+	 * 
+	 * @return true if a move was undone, false if there is no move to undo
+	 */
+	boolean annulerMouvement();
+
+	/**
+	 * 
+	 * Redoes the last move undone. Moves undone can no longer be redone once a
+	 * new move has been made.
+	 * 
+	 * @return true if a move was redone, false if there is no move to redo
+	 */
+	boolean retablirMouvement();
+
 }
@@ -0,0 +1,46 @@
+package modele;
+
+/**
+ *
+ * Kinds of models that can hold a Hashiwokakero puzzle. Each kind creates an
+ * empty puzzle of a given size. Every model keeps an {@link Ile} and a
+ * {@link Pont} object by ile and by pont; puzzles held in large numbers, e.g.
+ * for batch solving, are better kept as their {@link GrilleInterface#getEtat()
+ * state}, which only holds primitive arrays.
+ */
+public enum GrilleType {
+
+    /**
+     * Field stored as a <code>FieldElement[][]</code>, see {@link GrilleModel}.
+     */
+    OBJETS {
+        @Override
+        public GrilleInterface creer(int width, int height) {
+            return new GrilleModel(width, height);
+        }
+    },
+
+    /**
+     * Only iles and ponts stored, see {@link GrilleCreuseModel}. Suited to
+     * large fields with few iles.
+     */
+    CREUSE {
+        @Override
+        public GrilleInterface creer(int width, int height) {
+            return new GrilleCreuseModel(width, height);
+        }
+    };
+
+    /**
+     *
+     * Creates an empty <code>width x height</code> Hashiwokakeru puzzle of this
+     * kind.
+     *
+     * @param width
+     *            of the Hashiwokakeru puzzle
+     * @param height
+     *            of the Hashiwokakeru puzzle
+     * @return empty puzzle
+     */
+    public abstract GrilleInterface creer(int width, int height);
+}
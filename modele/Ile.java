@@ -13,11 +13,20 @@ package modele;
  */
 public class Ile implements FieldElement, Comparable<Ile> {
 
+    /**
+     * If true, every read of the number of ponts missing is checked against a
+     * full recount of the ponts of the ile. Enabled by starting the JVM with
+     * <code>-Dhashi.debug=true</code>.
+     */
+    static final boolean MODE_DEBUG = Boolean.getBoolean("hashi.debug");
+
     final Position coords;
+    int id; // index of ile in order of insertion into the model
     int noOfPontsRequired;
-    final GrilleModel outer;
+    int noOfPonts; // ponts currently connected, maintained by the model
+    final AbstractGrilleModel outer;
 
-    Ile(int x, int y, final GrilleModel outer) {
+    Ile(int x, int y, final AbstractGrilleModel outer) {
         this.outer = outer;
         this.coords = new Position(x, y);
     }
@@ -74,6 +83,16 @@ public class Ile implements FieldElement, Comparable<Ile> {
         return coords;
     }
 
+    /**
+     * Gets the id of this ile, i.e. the number of iles added to the model
+     * before this ile.
+     * 
+     * @return id of this ile
+     */
+    public int getId() {
+        return id;
+    }
+
     public int getX() {
         return getCoords().x;
     }
@@ -87,15 +106,32 @@ public class Ile implements FieldElement, Comparable<Ile> {
      * to be added, by this instance of an <code>Ile
      *
      * @return number of ponts missing
+     * @throws IllegalStateException
+     *             in debug mode if the number of ponts maintained by the model
+     *             differs from the number of ponts on the field
      */
     public int getNoOfPontsMissing() {
-        int noOfPontsMissing = noOfPontsRequired;
+        if (MODE_DEBUG && noOfPonts != recompterPonts())
+            throw new IllegalStateException("L'île " + this + " a " + recompterPonts() + " ponts mais le modèle en compte " + noOfPonts + ".");
+        return noOfPontsRequired - noOfPonts;
+    }
+
+    /**
+     * Adds <code>difference</code> to the number of ponts connected to this
+     * ile.
+     */
+    void ajouterPonts(int difference) {
+        noOfPonts += difference;
+    }
+
+    private int recompterPonts() {
+        int noOfPontsOnField = 0;
         for (Position.Direction direction : Position.Direction.values()) {
             Pont pont = outer.getPont(this, direction);
             if (pont != null) 
-                noOfPontsMissing = pont.isDouble() ? noOfPontsMissing - 2 : noOfPontsMissing - 1;
+                noOfPontsOnField += pont.isDouble() ? 2 : 1;
         }
-        return noOfPontsMissing;
+        return noOfPontsOnField;
     }
     
 }
@@ -0,0 +1,98 @@
+package modele;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * Journal of the moves made on one model. It holds the moves that can be
+ * undone and redone as well as the order in which the ponts still on the
+ * field have been inserted. Each model has its own journal, so models used
+ * by different threads do not share any state.
+ */
+final class Journal {
+
+    private final List<Mouvement> annulables = new ArrayList<>();
+    private final List<Mouvement> retablissables = new ArrayList<>();
+    private Insertion derniere; // last element of list of insertions
+
+    /**
+     * Insertion of a pont, i.e. its creation or its doubling, that has not been
+     * removed yet. Insertions are doubly linked in the order in which they
+     * were made so that any of them can be removed in O(1).
+     */
+    static final class Insertion {
+        private final Pont pont;
+        private Insertion precedente, suivante;
+
+        private Insertion(Pont pont) {
+            this.pont = pont;
+        }
+    }
+
+    Insertion inserer(Pont pont) {
+        Insertion insertion = new Insertion(pont);
+        insertion.precedente = derniere;
+        if (derniere != null)
+            derniere.suivante = insertion;
+        derniere = insertion;
+        return insertion;
+    }
+
+    void retirer(Insertion insertion) {
+        if (insertion.suivante != null)
+            insertion.suivante.precedente = insertion.precedente;
+        else derniere = insertion.precedente;
+        if (insertion.precedente != null)
+            insertion.precedente.suivante = insertion.suivante;
+        insertion.precedente = insertion.suivante = null;
+    }
+
+    /**
+     * Gets the pont of the last insertion that has not been removed.
+     */
+    Pont getDernierPont() {
+        return derniere == null ? null : derniere.pont;
+    }
+
+    /**
+     * Records a move made by the user or a solver. Moves undone before can no
+     * longer be redone.
+     */
+    void enregistrer(Mouvement mouvement) {
+        annulables.add(mouvement);
+        retablissables.clear();
+    }
+
+    /**
+     * Gets the last move that can be undone and moves it to the moves that can
+     * be redone, <code>null</code> if there is none.
+     */
+    Mouvement annuler() {
+        if (annulables.isEmpty())
+            return null;
+        Mouvement mouvement = annulables.remove(annulables.size() - 1);
+        retablissables.add(mouvement);
+        return mouvement;
+    }
+
+    /**
+     * Gets the last move undone and moves it back to the moves that can be
+     * undone, <code>null</code> if there is none.
+     */
+    Mouvement retablir() {
+        if (retablissables.isEmpty())
+            return null;
+        Mouvement mouvement = retablissables.remove(retablissables.size() - 1);
+        annulables.add(mouvement);
+        return mouvement;
+    }
+
+    /**
+     * Forgets all moves. The order of the insertions is kept.
+     */
+    void vider() {
+        annulables.clear();
+        retablissables.clear();
+    }
+}
@@ -0,0 +1,95 @@
+package modele;
+
+/**
+ *
+ * A move made on a Hashiwokakero puzzle, i.e. a pont that was added to or
+ * removed from the field between two iles.
+ */
+public final class Mouvement {
+
+    private final Type type;
+    private final Ile start;
+    private final Ile end;
+    private final boolean doublePont;
+
+    /**
+     * Constructs a move of the <code>type</code> between the iles at both
+     * ends of the pont.
+     * 
+     * @param type
+     *            of the move
+     * @param start
+     *            of the pont
+     * @param end
+     *            of the pont
+     * @param doublePont
+     *            true if the pont added or removed as a whole is a double pont
+     */
+    public Mouvement(Type type, Ile start, Ile end, boolean doublePont) {
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        this.doublePont = doublePont;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Ile getStart() {
+        return start;
+    }
+
+    public Ile getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns true if the pont added or removed by a move of the type
+     * {@link Type#AJOUT AJOUT} or {@link Type#SUPPRESSION SUPPRESSION} is a
+     * double pont.
+     * 
+     * @return true if a double pont is added or removed as a whole
+     */
+    public boolean isDouble() {
+        return doublePont;
+    }
+
+    /**
+     * Gets the move undoing <code>this</code> move.
+     * 
+     * @return inverse move
+     */
+    public Mouvement inverse() {
+        return new Mouvement(type.inverse(), start, end, doublePont);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + start + " " + end + (doublePont ? " double" : "");
+    }
+
+    public enum Type {
+
+        AJOUT, // pont added where there was none
+
+        SUPPRESSION, // pont removed as a whole
+
+        DOUBLEMENT, // single pont became a double pont
+
+        DEDOUBLEMENT; // double pont became a single pont
+
+        Type inverse() {
+            switch (this) {
+            case AJOUT:
+                return SUPPRESSION;
+            case SUPPRESSION:
+                return AJOUT;
+            case DOUBLEMENT:
+                return DEDOUBLEMENT;
+            default:
+                return DOUBLEMENT;
+            }
+        }
+    }
+}
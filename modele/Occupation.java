@@ -0,0 +1,52 @@
+package modele;
+
+import modele.Position.Direction;
+
+/**
+ *
+ * Index of the cells of a field occupied by iles and ponts, used by the
+ * models to answer whether a line of cells is free without looking at the
+ * cells one by one.
+ */
+abstract class Occupation {
+
+    /**
+     * Marks the cell of the <code>ile</code> as occupied by the ile.
+     */
+    abstract void ajouterIle(Ile ile);
+
+    /**
+     * Marks the cells between the start and the end of the <code>pont</code>
+     * as occupied by the pont.
+     */
+    abstract void ajouterPont(Pont pont);
+
+    /**
+     * Marks the cells between the start and the end of the <code>pont</code>
+     * as free.
+     */
+    abstract void retirerPont(Pont pont);
+
+    /**
+     * Returns true if no cell strictly between the <code>ile</code> and the
+     * <code>otherIle</code>, which are in the same row or column, is occupied.
+     */
+    abstract boolean estLibreEntre(Ile ile, Ile otherIle);
+
+    /**
+     * Gets the coordinate in the axis of the <code>direction</code> of the ile
+     * first encountered when stepping from (x, y) into the
+     * <code>direction</code>, ponts being ignored, i.e. its x coordinate if
+     * the direction is east or west and its y coordinate otherwise.
+     *
+     * @return coordinate of the ile found, -1 if there is none
+     */
+    abstract int ileProche(int x, int y, Direction direction);
+
+    /**
+     * Gets the number of free cells encountered when stepping from (x, y) into
+     * the <code>direction</code> before reaching an occupied cell or the border
+     * of the field.
+     */
+    abstract int nbCasesLibres(int x, int y, Direction direction);
+}
@@ -0,0 +1,177 @@
+package modele;
+
+import modele.Position.Direction;
+
+/**
+ *
+ * Occupation of the cells of a field stored in bitsets. For every row and for
+ * every column, there is one bitset of the iles, one of the horizontal ponts
+ * and one of the vertical ponts crossing it. Whether a line of cells is free
+ * or where the next ile of a row is, is then answered by a few mask
+ * operations on 64 cells at once.
+ *
+ * <p>
+ * The bitset of the row y starts at <code>y * motsLigne</code> in the arrays
+ * of rows, the bit x of this bitset stands for the cell (x, y). Columns are
+ * stored the same way with the bit y of the bitset of the column x standing
+ * for the cell (x, y).
+ * </p>
+ */
+final class OccupationBits extends Occupation {
+
+    private static final int ILES = 0, PONTS_HORIZONTAUX = 1, PONTS_VERTICAUX = 2;
+
+    private final int width;
+    private final int height;
+    private final int motsLigne; // longs per row
+    private final int motsColonne; // longs per column
+    private final long[][] lignes; // bitsets of the rows by kind of occupation
+    private final long[][] colonnes; // bitsets of the columns by kind of occupation
+
+    OccupationBits(int width, int height) {
+        this.width = width;
+        this.height = height;
+        motsLigne = (width + 63) >>> 6;
+        motsColonne = (height + 63) >>> 6;
+        lignes = new long[3][height * motsLigne];
+        colonnes = new long[3][width * motsColonne];
+    }
+
+    @Override
+    void ajouterIle(Ile ile) {
+        int x = ile.getX();
+        int y = ile.getY();
+        lignes[ILES][y * motsLigne + (x >>> 6)] |= 1L << x;
+        colonnes[ILES][x * motsColonne + (y >>> 6)] |= 1L << y;
+    }
+
+    @Override
+    void ajouterPont(Pont pont) {
+        marquerPont(pont, true);
+    }
+
+    @Override
+    void retirerPont(Pont pont) {
+        marquerPont(pont, false);
+    }
+
+    private void marquerPont(Pont pont, boolean occupe) {
+        int genre = pont.isVertical() ? PONTS_VERTICAUX : PONTS_HORIZONTAUX;
+        int x = pont.getStart().getX();
+        int y = pont.getStart().getY();
+        if (pont.isVertical()) {
+            marquerPlage(colonnes[genre], x * motsColonne, y + 1, pont.getEnd().getY(), occupe);
+            for (int yPont = y + 1; yPont < pont.getEnd().getY(); yPont++)
+                marquer(lignes[genre], yPont * motsLigne, x, occupe);
+        } else {
+            marquerPlage(lignes[genre], y * motsLigne, x + 1, pont.getEnd().getX(), occupe);
+            for (int xPont = x + 1; xPont < pont.getEnd().getX(); xPont++)
+                marquer(colonnes[genre], xPont * motsColonne, y, occupe);
+        }
+    }
+
+    private static void marquer(long[] bits, int debut, int bit, boolean occupe) {
+        if (occupe) bits[debut + (bit >>> 6)] |= 1L << bit;
+        else bits[debut + (bit >>> 6)] &= ~(1L << bit);
+    }
+
+    // sets or clears bits [from, to) of bitset starting at debut
+    private static void marquerPlage(long[] bits, int debut, int from, int to, boolean occupe) {
+        for (int mot = from >>> 6; from < to; mot++, from = mot << 6) {
+            long masque = masque(from, to, mot);
+            if (occupe) bits[debut + mot] |= masque;
+            else bits[debut + mot] &= ~masque;
+        }
+    }
+
+    // bits [from, to) that are in the word mot, from being in the word mot
+    private static long masque(int from, int to, int mot) {
+        long masque = -1L << from;
+        if (to < (mot + 1) << 6)
+            masque &= ~(-1L << to);
+        return masque;
+    }
+
+    @Override
+    boolean estLibreEntre(Ile ile, Ile otherIle) {
+        if (ile.getY() == otherIle.getY())
+            return estPlageLibre(lignes, ile.getY() * motsLigne, Math.min(ile.getX(), otherIle.getX()) + 1, Math.max(ile.getX(), otherIle.getX()));
+        return estPlageLibre(colonnes, ile.getX() * motsColonne, Math.min(ile.getY(), otherIle.getY()) + 1, Math.max(ile.getY(), otherIle.getY()));
+    }
+
+    // true if bits [from, to) of all kinds of occupation of bitset starting at debut are cleared
+    private static boolean estPlageLibre(long[][] bits, int debut, int from, int to) {
+        for (int mot = from >>> 6; from < to; mot++, from = mot << 6) {
+            if ((occupation(bits, debut + mot) & masque(from, to, mot)) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static long occupation(long[][] bits, int index) {
+        return bits[ILES][index] | bits[PONTS_HORIZONTAUX][index] | bits[PONTS_VERTICAUX][index];
+    }
+
+    @Override
+    int ileProche(int x, int y, Direction direction) {
+        switch (direction) {
+        case NORD:
+            return precedent(colonnes, ILES, x * motsColonne, y - 1);
+        case SUD:
+            return suivant(colonnes, ILES, x * motsColonne, motsColonne, y + 1);
+        case OUEST:
+            return precedent(lignes, ILES, y * motsLigne, x - 1);
+        default:
+            return suivant(lignes, ILES, y * motsLigne, motsLigne, x + 1);
+        }
+    }
+
+    @Override
+    int nbCasesLibres(int x, int y, Direction direction) {
+        switch (direction) {
+        case NORD:
+            return y - 1 - precedent(colonnes, -1, x * motsColonne, y - 1);
+        case SUD:
+            int ySuivant = suivant(colonnes, -1, x * motsColonne, motsColonne, y + 1);
+            return (ySuivant < 0 ? height : ySuivant) - y - 1;
+        case OUEST:
+            return x - 1 - precedent(lignes, -1, y * motsLigne, x - 1);
+        default:
+            int xSuivant = suivant(lignes, -1, y * motsLigne, motsLigne, x + 1);
+            return (xSuivant < 0 ? width : xSuivant) - x - 1;
+        }
+    }
+
+    // word of kind genre of occupation, any kind if genre is -1
+    private static long mot(long[][] bits, int genre, int index) {
+        return genre < 0 ? occupation(bits, index) : bits[genre][index];
+    }
+
+    // first set bit >= from of bitset starting at debut, -1 if there is none
+    private static int suivant(long[][] bits, int genre, int debut, int mots, int from) {
+        int mot = from >>> 6;
+        if (mot >= mots)
+            return -1;
+        long reste = mot(bits, genre, debut + mot) & (-1L << from);
+        while (reste == 0) {
+            if (++mot == mots)
+                return -1;
+            reste = mot(bits, genre, debut + mot);
+        }
+        return (mot << 6) + Long.numberOfTrailingZeros(reste);
+    }
+
+    // last set bit <= from of bitset starting at debut, -1 if there is none
+    private static int precedent(long[][] bits, int genre, int debut, int from) {
+        if (from < 0)
+            return -1;
+        int mot = from >>> 6;
+        long reste = mot(bits, genre, debut + mot) & (-1L >>> (63 - (from & 63)));
+        while (reste == 0) {
+            if (--mot < 0)
+                return -1;
+            reste = mot(bits, genre, debut + mot);
+        }
+        return (mot << 6) + 63 - Long.numberOfLeadingZeros(reste);
+    }
+}
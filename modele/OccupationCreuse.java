@@ -0,0 +1,167 @@
+package modele;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import modele.Position.Direction;
+
+/**
+ *
+ * Occupation of the cells of a field stored in sorted maps holding only the
+ * iles and the ponts, so that its size depends on the number of iles rather
+ * than on the size of the field.
+ *
+ * <p>
+ * The iles are stored by row and by column, the horizontal ponts by row and
+ * the vertical ponts by column. Within a row or a column, iles are keyed by
+ * their position and ponts by the position of their start. Since ponts of a
+ * row (or of a column) never overlap, the pont covering a cell is the pont
+ * starting last before it.
+ * </p>
+ */
+final class OccupationCreuse extends Occupation {
+
+    private final Map<Integer, TreeMap<Integer, Ile>> ilesParLigne = new HashMap<>();
+    private final Map<Integer, TreeMap<Integer, Ile>> ilesParColonne = new HashMap<>();
+    // sorted by row, respectively column, to find crossing ponts
+    private final TreeMap<Integer, TreeMap<Integer, Pont>> pontsParLigne = new TreeMap<>();
+    private final TreeMap<Integer, TreeMap<Integer, Pont>> pontsParColonne = new TreeMap<>();
+
+    private final int width;
+    private final int height;
+
+    OccupationCreuse(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Gets the ile or the pont at (x, y), <code>null</code> if the cell is
+     * free.
+     */
+    FieldElement elementAt(int x, int y) {
+        TreeMap<Integer, Ile> ligne = ilesParLigne.get(y);
+        Ile ile = ligne == null ? null : ligne.get(x);
+        if (ile != null)
+            return ile;
+        Pont pont = pontCouvrant(pontsParLigne, y, x);
+        return pont != null ? pont : pontCouvrant(pontsParColonne, x, y);
+    }
+
+    @Override
+    void ajouterIle(Ile ile) {
+        ilesParLigne.computeIfAbsent(ile.getY(), y -> new TreeMap<>()).put(ile.getX(), ile);
+        ilesParColonne.computeIfAbsent(ile.getX(), x -> new TreeMap<>()).put(ile.getY(), ile);
+    }
+
+    @Override
+    void ajouterPont(Pont pont) {
+        if (pont.isVertical())
+            pontsParColonne.computeIfAbsent(pont.getStart().getX(), x -> new TreeMap<>()).put(pont.getStart().getY(), pont);
+        else pontsParLigne.computeIfAbsent(pont.getStart().getY(), y -> new TreeMap<>()).put(pont.getStart().getX(), pont);
+    }
+
+    @Override
+    void retirerPont(Pont pont) {
+        TreeMap<Integer, TreeMap<Integer, Pont>> ponts = pont.isVertical() ? pontsParColonne : pontsParLigne;
+        int ligne = pont.isVertical() ? pont.getStart().getX() : pont.getStart().getY();
+        TreeMap<Integer, Pont> pontsLigne = ponts.get(ligne);
+        pontsLigne.remove(pont.isVertical() ? pont.getStart().getY() : pont.getStart().getX());
+        if (pontsLigne.isEmpty())
+            ponts.remove(ligne);
+    }
+
+    @Override
+    boolean estLibreEntre(Ile ile, Ile otherIle) {
+        if (ile.getY() == otherIle.getY())
+            return estLibre(ilesParLigne, pontsParLigne, pontsParColonne, ile.getY(), Math.min(ile.getX(), otherIle.getX()), Math.max(ile.getX(), otherIle.getX()));
+        return estLibre(ilesParColonne, pontsParColonne, pontsParLigne, ile.getX(), Math.min(ile.getY(), otherIle.getY()), Math.max(ile.getY(), otherIle.getY()));
+    }
+
+    @Override
+    int ileProche(int x, int y, Direction direction) {
+        switch (direction) {
+        case NORD:
+            return ileProche(ilesParColonne, x, y, false);
+        case SUD:
+            return ileProche(ilesParColonne, x, y, true);
+        case OUEST:
+            return ileProche(ilesParLigne, y, x, false);
+        default:
+            return ileProche(ilesParLigne, y, x, true);
+        }
+    }
+
+    @Override
+    int nbCasesLibres(int x, int y, Direction direction) {
+        switch (direction) {
+        case NORD:
+            return nbCasesLibres(ilesParColonne, pontsParColonne, pontsParLigne, x, y, false, height);
+        case SUD:
+            return nbCasesLibres(ilesParColonne, pontsParColonne, pontsParLigne, x, y, true, height);
+        case OUEST:
+            return nbCasesLibres(ilesParLigne, pontsParLigne, pontsParColonne, y, x, false, width);
+        default:
+            return nbCasesLibres(ilesParLigne, pontsParLigne, pontsParColonne, y, x, true, width);
+        }
+    }
+
+    // position of end of pont in the line of the pont
+    private static int fin(Pont pont) {
+        return pont.isVertical() ? pont.getEnd().getY() : pont.getEnd().getX();
+    }
+
+    // pont of the line covering the position, null if there is none
+    private static Pont pontCouvrant(TreeMap<Integer, TreeMap<Integer, Pont>> ponts, int ligne, int position) {
+        TreeMap<Integer, Pont> pontsLigne = ponts.get(ligne);
+        if (pontsLigne == null)
+            return null;
+        Map.Entry<Integer, Pont> precedent = pontsLigne.lowerEntry(position);
+        return precedent != null && fin(precedent.getValue()) > position ? precedent.getValue() : null;
+    }
+
+    // true if the positions strictly between from and to of the line are free
+    private static boolean estLibre(Map<Integer, TreeMap<Integer, Ile>> iles, TreeMap<Integer, TreeMap<Integer, Pont>> pontsParalleles,
+                    TreeMap<Integer, TreeMap<Integer, Pont>> pontsCroisants, int ligne, int from, int to) {
+        if (to - from < 2)
+            return true;
+        TreeMap<Integer, Ile> ilesLigne = iles.get(ligne);
+        Integer ileSuivante = ilesLigne == null ? null : ilesLigne.higherKey(from);
+        if (ileSuivante != null && ileSuivante < to)
+            return false;
+        TreeMap<Integer, Pont> pontsLigne = pontsParalleles.get(ligne);
+        Map.Entry<Integer, Pont> pontPrecedent = pontsLigne == null ? null : pontsLigne.lowerEntry(to - 1);
+        if (pontPrecedent != null && fin(pontPrecedent.getValue()) > from + 1)
+            return false;
+        for (Integer ligneCroisante : pontsCroisants.subMap(from, false, to, false).keySet()) {
+            if (pontCouvrant(pontsCroisants, ligneCroisante, ligne) != null)
+                return false;
+        }
+        return true;
+    }
+
+    private static int ileProche(Map<Integer, TreeMap<Integer, Ile>> iles, int ligne, int position, boolean versLaFin) {
+        TreeMap<Integer, Ile> ilesLigne = iles.get(ligne);
+        Integer ile = ilesLigne == null ? null : versLaFin ? ilesLigne.higherKey(position) : ilesLigne.lowerKey(position);
+        return ile == null ? -1 : ile;
+    }
+
+    private static int nbCasesLibres(Map<Integer, TreeMap<Integer, Ile>> iles, TreeMap<Integer, TreeMap<Integer, Pont>> pontsParalleles,
+                    TreeMap<Integer, TreeMap<Integer, Pont>> pontsCroisants, int ligne, int position, boolean versLaFin, int longueur) {
+        int pas = versLaFin ? 1 : -1;
+        // ponts of the line start at iles, so only a pont covering the next cell is closer than the next ile
+        if (pontCouvrant(pontsParalleles, ligne, position + pas) != null)
+            return 0;
+        int occupee = ileProche(iles, ligne, position, versLaFin);
+        if (occupee < 0)
+            occupee = versLaFin ? longueur : -1;
+        Integer ligneCroisante = versLaFin ? pontsCroisants.higherKey(position) : pontsCroisants.lowerKey(position);
+        while (ligneCroisante != null && (versLaFin ? ligneCroisante < occupee : ligneCroisante > occupee)) {
+            if (pontCouvrant(pontsCroisants, ligneCroisante, ligne) != null)
+                occupee = ligneCroisante;
+            else ligneCroisante = versLaFin ? pontsCroisants.higherKey(ligneCroisante) : pontsCroisants.lowerKey(ligneCroisante);
+        }
+        return Math.abs(occupee - position) - 1;
+    }
+}
@@ -16,11 +16,11 @@ public class Pont implements FieldElement {
     Ile end;
     boolean isDouble;
     private boolean isVertical;
-    private int singlePontNo;
-    private int pontNo;
-    final GrilleModel outer;
+    Journal.Insertion insertion; // creation of pont, to determine pont last inserted
+    Journal.Insertion insertionDouble; // pont becoming double, if so
+    final AbstractGrilleModel outer;
 
-    Pont(Ile islandA, Ile islandB, boolean isDouble, final GrilleModel outer) throws IllegalArgumentException {
+    Pont(Ile islandA, Ile islandB, boolean isDouble, final AbstractGrilleModel outer) throws IllegalArgumentException {
         this.outer = outer;
         // check orientation of pont
         if (islandA.getCoords().x != islandB.getCoords().x && islandA.getCoords().y == islandB.getCoords().y) {
@@ -34,11 +34,15 @@ public class Pont implements FieldElement {
         this.start = islandAisStart ? islandA : islandB;
         this.end = islandAisStart ? islandB : islandA;
         this.isDouble = isDouble;
-        pontNo = GrilleModel.pontCounter++; // to determine pont last inserted
     }
 
-    int getPontNo() {
-        return pontNo;
+    /**
+     * Gets the number of single ponts this pont consists of.
+     * 
+     * @return 2 if this pont is a double pont, otherwise 1
+     */
+    int getMultiplicite() {
+        return isDouble ? 2 : 1;
     }
 
     /**
@@ -60,13 +64,20 @@ public class Pont implements FieldElement {
     }
 
     void setDouble(boolean isDouble) {
-        if (isDouble) {
-            if (!this.isDouble) {
-                singlePontNo = pontNo; // lazy instantiation
-                pontNo = GrilleModel.pontCounter++;
-            }
-        } else pontNo = singlePontNo;
-        this.isDouble = isDouble;
+        if (isDouble && !this.isDouble) 
+            insertionDouble = outer.journal.inserer(this);
+        else if (!isDouble && insertionDouble != null) {
+            outer.journal.retirer(insertionDouble);
+            insertionDouble = null;
+        }
+        if (isDouble != this.isDouble) { // one pont more or less at both ends
+            int difference = isDouble ? 1 : -1;
+            start.ajouterPonts(difference);
+            end.ajouterPonts(difference);
+            outer.inverserCle(this); // replace key of old multiplicity by key of new one
+            this.isDouble = isDouble;
+            outer.inverserCle(this);
+        }
     }
 
     /**
@@ -0,0 +1,49 @@
+package modele;
+
+/**
+ *
+ * Keys for the Zobrist hashing of the ponts of a puzzle. The hash of a puzzle
+ * is the exclusive or of the keys of all the ponts on its field, so adding,
+ * removing or doubling a pont changes it in O(1).
+ *
+ * <p>
+ * Keys are derived from the coordinates of the start of a pont, its
+ * orientation and its multiplicity instead of being drawn at random, so the
+ * same ponts get the same hash in every model and every run, whatever the
+ * order in which iles were added.
+ * </p>
+ */
+final class Zobrist {
+
+    private Zobrist() {}
+
+    /**
+     * Gets the key of a pont starting at (x, y).
+     *
+     * @param x
+     *            coordinate of the start of the pont
+     * @param y
+     *            coordinate of the start of the pont
+     * @param vertical
+     *            true if the pont is vertical
+     * @param multiplicite
+     *            1 or 2
+     * @return key of the pont
+     */
+    static long cle(int x, int y, boolean vertical, int multiplicite) {
+        long cle = melanger(((long) x << 32) ^ (y & 0xFFFFFFFFL));
+        return melanger(cle + (vertical ? 2 : 0) + multiplicite);
+    }
+
+    static long cle(Pont pont) {
+        return cle(pont.getStart().getX(), pont.getStart().getY(), pont.isVertical(), pont.getMultiplicite());
+    }
+
+    // finalizer of SplitMix64
+    private static long melanger(long z) {
+        z = (z + 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}